@@ -0,0 +1,48 @@
+package org.lynxz.utilsdemo
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.lynxz.utils.reflect.EnabledResult
+import org.lynxz.utils.reflect.ProxyUtil
+import org.lynxz.utilsdemo.observer.AbsDemoObserver
+import java.lang.reflect.Method
+
+
+@RunWith(AndroidJUnit4::class)
+class ProxyUtilTest {
+
+    /**
+     * 抽象类继承了父类并实现了接口, 编译期生成的子类需实现所有继承的抽象方法
+     * */
+    @Test
+    fun generateAbsClassInstanceTest() {
+        val invokedMethods = mutableListOf<String>()
+        val observer = ProxyUtil.generateDefaultImplObj(
+            AbsDemoObserver::class.java,
+            object : ProxyUtil.IFuncInvokeCallback {
+                override fun onFuncInvoke(
+                    method: Method,
+                    returnObj: Any?,
+                    argGroupIndex: Int,
+                    args: Array<out Any?>?
+                ): EnabledResult<Any>? {
+                    invokedMethods.add(method.name)
+                    return if (method.name == "onResult") EnabledResult<Any>(true) else null
+                }
+            })
+        Assert.assertNotNull(observer)
+        Assert.assertEquals(
+            "${AbsDemoObserver::class.java.name}${ProxyUtil.GENERATED_PROXY_SUFFIX}",
+            observer!!.javaClass.name
+        )
+
+        observer.onStart("test") // 父类的抽象方法
+        Assert.assertTrue(observer.onResult(0, "ok")) // 接口方法
+        observer.onProgress(50) // 本类的抽象方法
+        observer.onStop() // 父类已实现的方法保持原有逻辑, 不触发回调
+        Assert.assertTrue(observer.stopped)
+        Assert.assertEquals(listOf("onStart", "onResult", "onProgress"), invokedMethods)
+    }
+}
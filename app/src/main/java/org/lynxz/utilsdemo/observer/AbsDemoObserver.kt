@@ -0,0 +1,25 @@
+package org.lynxz.utilsdemo.observer
+
+import org.lynxz.utils.reflect.GenerateProxy
+
+/**
+ * 演示 [GenerateProxy] 用于抽象类的父类
+ */
+abstract class AbsBaseObserver {
+    var stopped = false
+
+    abstract fun onStart(tag: String)
+
+    open fun onStop() {
+        stopped = true
+    }
+}
+
+/**
+ * 继承了父类并实现了接口的抽象 observer
+ * 编译时会生成子类 AbsDemoObserver_RecookProxy, 实现 [onStart], [onResult], [onProgress] 三个抽象方法
+ */
+@GenerateProxy
+abstract class AbsDemoObserver : AbsBaseObserver(), IDemoCallback {
+    abstract fun onProgress(progress: Int)
+}
@@ -0,0 +1,8 @@
+package org.lynxz.utilsdemo.observer
+
+/**
+ * 演示用回调接口, 由 [AbsDemoObserver] 实现
+ */
+interface IDemoCallback {
+    fun onResult(code: Int, msg: String?): Boolean
+}
@@ -3,6 +3,7 @@ package org.lynxz.utils
 import android.util.Log
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.platform.app.InstrumentationRegistry
+import java.io.File
 import org.junit.Assert
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -99,6 +100,21 @@ class FileUtilTest {
         Assert.assertEquals(2, FileUtil.readAllLine(absPath).size)
     }
 
+    @Test
+    fun readLinesTest() {
+        val absPath = "${externalFilesDir?.absolutePath}/a/lines.txt"
+        Assert.assertTrue(FileUtil.writeToFile("line1\n\nline3\n\n", absPath))
+
+        Assert.assertEquals(4, FileUtil.useLines(absPath) { it.count() })
+        Assert.assertEquals(listOf("", "line3", "", "line1"), FileUtil.useReversedLines(absPath) { it.toList() })
+        Assert.assertEquals("line1", FileUtil.getFirstLineInfo(absPath, reverse = false, skipEmptyLine = true, defaultMsg = null))
+        Assert.assertEquals("line3", FileUtil.getFirstLineInfo(absPath, reverse = true, skipEmptyLine = true, defaultMsg = null))
+        Assert.assertEquals("", FileUtil.getFirstLineInfo(absPath, reverse = true, skipEmptyLine = false, defaultMsg = null))
+
+        Assert.assertNull(FileUtil.useLines("$absPath.none") { it.count() })
+        Assert.assertEquals("x", FileUtil.getFirstLineInfo("$absPath.none", reverse = true, skipEmptyLine = true, defaultMsg = "x"))
+    }
+
     @Test
     fun writeByteTest() {
         val absPath = "${externalFilesDir?.absolutePath}/a/abc_byte.bin"
@@ -120,6 +136,128 @@ class FileUtilTest {
         Assert.assertTrue(FileUtil.readAllBytes(absPath)[0] == ba[0])
     }
 
+    @Test
+    fun walkTest() {
+        val dirPath = "${externalFilesDir?.absolutePath}/walk"
+        FileUtil.delete(dirPath)
+        Assert.assertTrue(FileUtil.writeToFile("old", "$dirPath/old.log"))
+        Assert.assertTrue(FileUtil.writeToFile("new", "$dirPath/new.log"))
+        Assert.assertTrue(FileUtil.writeToFile("sub", "$dirPath/logDir/sub.txt"))
+        File("$dirPath/old.log").setLastModified(1600000000000L)
+
+        Assert.assertEquals("old.log", FileUtil.listSubFiles(dirPath, true).first().name)
+        Assert.assertEquals("old.log", FileUtil.listSubFiles(dirPath, false).last().name)
+        Assert.assertEquals(4, FileUtil.getLastModified(dirPath, true).size)
+        Assert.assertEquals(2, FileWalker(File(dirPath)).glob("*.log").list().size)
+
+        Assert.assertTrue(FileUtil.deleteByPattern(dirPath, "^log", parallelism = 2))
+        Assert.assertFalse(FileUtil.isExist("$dirPath/logDir"))
+        Assert.assertTrue(FileUtil.deleteByPattern(dirPath, "OLD", ignoreCase = true))
+        Assert.assertEquals(listOf("new.log"), FileUtil.listSubFiles(dirPath).map { it.name })
+        Assert.assertTrue(FileUtil.delete(File(dirPath), 2))
+        Assert.assertFalse(FileUtil.isExist(dirPath))
+    }
+
+    @Test
+    fun atomicWriteTest() {
+        val dirPath = "${externalFilesDir?.absolutePath}/atomic"
+        val absPath = "$dirPath/state.json"
+        FileUtil.delete(dirPath)
+
+        Assert.assertTrue(FileUtil.writeAtomically("v1", absPath))
+        Assert.assertTrue(FileUtil.writeAtomically("v2", absPath))
+        Assert.assertEquals(listOf("v2"), FileUtil.readAllLine(absPath))
+        Assert.assertNull(FileUtil.readVerified(absPath)) // 无校验信息
+
+        Assert.assertTrue(FileUtil.writeAtomically("v3", absPath, withChecksum = true))
+        Assert.assertEquals("v3", String(FileUtil.readVerified(absPath)!!))
+        Assert.assertEquals(1, FileUtil.listSubFiles(dirPath).size) // 临时文件已删除
+
+        // 内容损坏
+        val bytes = FileUtil.readAllBytes(absPath)
+        bytes[0] = 'x'.code.toByte()
+        Assert.assertTrue(FileUtil.writeToFile(bytes, absPath))
+        Assert.assertNull(FileUtil.readVerified(absPath))
+    }
+
+    @Test
+    fun appenderTest() {
+        val absPath = "${externalFilesDir?.absolutePath}/a/appender.txt"
+        FileUtil.delete(absPath)
+
+        val appender = FileUtil.openAppender(absPath, flushIntervalMs = -1)!!
+        Assert.assertSame(appender, FileUtil.openAppender(absPath))
+        val threads = (0 until 4).map {
+            Thread { repeat(100) { appender.append("line", true) } }.apply { start() }
+        }
+        threads.forEach { it.join() }
+        appender.flush()
+        Assert.assertEquals(400, FileUtil.readAllLine(absPath).size)
+
+        // 被缓存池淘汰后仍可继续写入
+        for (i in 0..FileUtil.APPENDER_POOL_SIZE) {
+            FileUtil.openAppender("${externalFilesDir?.absolutePath}/a/appender$i.txt")?.append("x")
+        }
+        Assert.assertTrue(appender.append("last", true))
+        appender.close()
+        Assert.assertEquals(401, FileUtil.readAllLine(absPath).size)
+        Assert.assertFalse(appender.append("closed"))
+        Assert.assertNotSame(appender, FileUtil.openAppender(absPath))
+        FileUtil.closeAppenders()
+    }
+
+    /**
+     * 被缓存池淘汰后再次打开同一路径, 返回的仍是原实例, 两处引用写入同一个实例
+     * */
+    @Test
+    fun evictedAppenderReopenTest() {
+        val absPath = "${externalFilesDir?.absolutePath}/a/appender_evicted.txt"
+        FileUtil.delete(absPath)
+
+        val appender1 = FileUtil.openAppender(absPath, flushIntervalMs = 0)!!
+        Assert.assertTrue(appender1.append("first", true))
+        for (i in 0..FileUtil.APPENDER_POOL_SIZE) {
+            FileUtil.openAppender("${externalFilesDir?.absolutePath}/a/appender_evict$i.txt")?.append("x")
+        }
+
+        val appender2 = FileUtil.openAppender(absPath)!!
+        Assert.assertSame(appender1, appender2)
+        repeat(10) {
+            Assert.assertTrue(appender1.append("line1", true))
+            Assert.assertTrue(appender2.append("line2", true))
+            // 交替写入时不会互相淘汰
+            Assert.assertSame(appender1, FileUtil.openAppender(absPath))
+        }
+        FileUtil.closeAppenders()
+        Assert.assertTrue(appender1.isClosed)
+
+        val lines = FileUtil.readAllLine(absPath)
+        Assert.assertEquals(21, lines.size)
+        Assert.assertEquals("first", lines[0])
+        Assert.assertEquals(listOf("line1", "line2"), lines.subList(1, 3))
+    }
+
+    @Test
+    fun readBufferTest() {
+        val absPath = "${externalFilesDir?.absolutePath}/a/abc_buffer.bin"
+        val ba = ByteArray(100 * 1024) { (it % 127).toByte() }
+        Assert.assertTrue(FileUtil.writeToFile(ba, absPath))
+        Assert.assertArrayEquals(ba, FileUtil.readAllBytes(absPath))
+
+        val direct = FileUtil.readToDirectBuffer(absPath)!!
+        Assert.assertTrue(direct.isDirect)
+        Assert.assertEquals(ba.size, direct.remaining())
+        Assert.assertEquals(ba[ba.size - 1], direct.get(ba.size - 1))
+
+        val mapped = FileUtil.map(absPath, 10, 100)!!
+        Assert.assertEquals(100, mapped.remaining())
+        Assert.assertEquals(ba[10], mapped.get(0))
+        Assert.assertEquals(ba.size - 10, FileUtil.map(absPath, 10)!!.remaining())
+        Assert.assertNull(FileUtil.map(absPath, ba.size + 1L))
+
+        Assert.assertTrue(FileUtil.readAllBytes("$absPath.none").isEmpty())
+        Assert.assertNull(FileUtil.readToDirectBuffer("$absPath.none"))
+    }
 
     @Test
     fun copyTest() {
@@ -138,6 +276,46 @@ class FileUtilTest {
         Assert.assertTrue(FileUtil.copy(absPathCopyDir1, absPathCopyDir2))
         Assert.assertTrue(FileUtil.isExist("${absPathCopyDir2}/abc.txt"))
         Assert.assertTrue(FileUtil.isExist("${absPathCopyDir2}/xyz.txt"))
+
+        // procfs 中的文件大小为0, 但实际有内容
+        val procCopy = "${externalFilesDir?.absolutePath}/b/proc_status.txt"
+        Assert.assertEquals(0L, File("/proc/self/status").length())
+        Assert.assertTrue(FileUtil.copy("/proc/self/status", procCopy))
+        Assert.assertTrue(File(procCopy).length() > 0)
+    }
+
+    @Test
+    fun parallelCopyTest() {
+        val srcDir = "${externalFilesDir?.absolutePath}/copySrc"
+        val dstDir = "${externalFilesDir?.absolutePath}/copyDst"
+        FileUtil.delete(srcDir)
+        FileUtil.delete(dstDir)
+
+        val content = ByteArray(FileCopier.BUFFER_SIZE + 1) { it.toByte() }
+        for (i in 0 until 5) {
+            Assert.assertTrue(FileUtil.writeToFile(content, "$srcDir/sub$i/file$i.bin"))
+        }
+        val srcFile = File("$srcDir/sub0/file0.bin")
+        val ts = 1600000000000L
+        srcFile.setLastModified(ts)
+
+        var copied = 0L
+        var total = 0L
+        val listener = object : FileCopier.OnProgressListener {
+            override fun onProgress(file: File, copiedBytes: Long, totalBytes: Long) {
+                synchronized(this) {
+                    copied = maxOf(copied, copiedBytes)
+                    total = totalBytes
+                }
+            }
+        }
+        Assert.assertTrue(FileUtil.copy(srcDir, dstDir, 3, true, listener))
+        Assert.assertEquals(content.size * 5L, total)
+        Assert.assertEquals(total, copied)
+        for (i in 0 until 5) {
+            Assert.assertArrayEquals(content, FileUtil.readAllBytes("$dstDir/sub$i/file$i.bin"))
+        }
+        Assert.assertEquals(srcFile.lastModified(), File("$dstDir/sub0/file0.bin").lastModified())
     }
 
     @Test
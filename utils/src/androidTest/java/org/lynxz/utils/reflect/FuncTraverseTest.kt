@@ -2,11 +2,13 @@ package org.lynxz.utils.reflect
 
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.lynxz.utils.bean.FuncTraverseBean
 import org.lynxz.utils.log.LoggerUtil
 import java.lang.reflect.Method
+import java.util.*
 
 /**
  * 接口随机压测
@@ -45,6 +47,184 @@ class FuncTraverseTest {
         util.invokeAllPublic()
     }
 
+    /**
+     * 同一个类的遍历计划及方法签名在多个实例间共用
+     * */
+    @Test
+    fun traversePlanCacheTest() {
+        val key = FunTraversePlan.Key("fun.*", false, setOf("fun2"), emptySet())
+        val plan = FunTraversePlan.get(FuncTraverseBean::class.java, key)
+        Assert.assertSame(plan, FunTraversePlan.get(FuncTraverseBean::class.java, key.copy()))
+        Assert.assertEquals(listOf("fun1(Integer,Long)_void"), plan.methods.map { FunTraverseUtil.getMethodSignature(it) })
+
+        val util1 = FunTraverseUtil.create(FuncTraverseBean()).setMethodNamePattern("fun.*")
+        val util2 = FunTraverseUtil.create(FuncTraverseBean()).setMethodNamePattern("fun.*")
+        Assert.assertEquals(util1.validMethodList, util2.validMethodList)
+        Assert.assertEquals(
+            listOf("fun1(Integer,Long)_void", "fun2(String)_void"),
+            util1.invokeMethodSignatureList.sorted()
+        )
+    }
+
+    /**
+     * 会被修改的实参
+     * */
+    class MutableArg {
+        var count = 0
+    }
+
+    class MutableArgBean {
+        val args = mutableListOf<MutableArg>()
+
+        fun touch(arg: MutableArg?) {
+            arg?.let {
+                it.count++
+                args.add(it)
+            }
+        }
+    }
+
+    /**
+     * 同一个类的多个实例间不共用可修改的实参对象
+     * */
+    @Test
+    fun mutableArgNotSharedTest() {
+        val bean1 = MutableArgBean()
+        val bean2 = MutableArgBean()
+        FunTraverseUtil.create(bean1).enableDefaultMultiArtTypeValues().invokeAllPublic()
+        FunTraverseUtil.create(bean2).enableDefaultMultiArtTypeValues().invokeAllPublic()
+
+        val arg1 = bean1.args.single()
+        val arg2 = bean2.args.single()
+        Assert.assertNotSame(arg1, arg2)
+        Assert.assertEquals(1, arg1.count)
+        Assert.assertEquals(1, arg2.count)
+    }
+
+    /**
+     * 并行执行, 每个线程使用独立的待测对象, hook 串行回调
+     * */
+    @Test
+    fun traverseParallelTest() {
+        val targets = Collections.synchronizedSet(HashSet<FuncTraverseBean>())
+        var invokedCount = 0 // hook 串行回调, 无需同步
+        FunTraverseUtil.create(FuncTraverseBean())
+            .enableDefaultMultiArtTypeValues()
+            .setMaxArgValueGroupSize(-1)
+            .setParallelism(4) { FuncTraverseBean().also { targets.add(it) } }
+            .addAfterFuncInvokeAction(object : ProxyUtil.IFuncInvokeCallback {
+                override fun onFuncInvoke(
+                    method: Method,
+                    returnObj: Any?,
+                    argGroupIndex: Int,
+                    args: Array<out Any?>?
+                ): EnabledResult<Any>? {
+                    invokedCount++
+                    return null
+                }
+            })
+            .invokeAllPublic()
+
+        Assert.assertTrue(invokedCount > 0)
+        Assert.assertTrue(targets.size in 1..4)
+    }
+
+    /**
+     * 统计方法执行耗时并生成报告
+     * */
+    @Test
+    fun traverseProfilerTest() {
+        val profiler = FunTraverseProfiler(timeoutMs = 1000, maxSlowRecordSize = 5)
+        FunTraverseUtil.create(FuncTraverseBean())
+            .enableDefaultMultiArtTypeValues()
+            .setProfiler(profiler)
+            .invokeAllPublic()
+        profiler.release()
+
+        val stats = profiler.getMethodStats()
+        Assert.assertTrue(stats.isNotEmpty())
+        Assert.assertTrue(stats.values.all { it.histogram.count() > 0 && it.timeoutCount() == 0 })
+
+        val slowRecords = profiler.getSlowRecords()
+        Assert.assertTrue(slowRecords.size in 1..5)
+        Assert.assertEquals(slowRecords.sortedByDescending { it.costMs }, slowRecords)
+        LoggerUtil.d(TAG, profiler.generateReport())
+    }
+
+    /**
+     * 超时的执行结束后, 慢执行记录更新为实际耗时
+     * */
+    @Test
+    fun profilerTimeoutTest() {
+        val profiler = FunTraverseProfiler(timeoutMs = 50, maxSlowRecordSize = 5)
+        val invocation = profiler.onInvokeStart("sleep()_void", -1)
+        Thread.sleep(100)
+        Assert.assertEquals(50.0, profiler.getSlowRecords().single().costMs, 0.0) // 尚未结束, 记录为超时时长
+
+        Thread.sleep(100)
+        profiler.onInvokeEnd(invocation)
+        profiler.release()
+
+        val record = profiler.getSlowRecords().single()
+        Assert.assertTrue(record.timeout)
+        Assert.assertTrue(record.costMs >= 200)
+        Assert.assertEquals(1, profiler.getMethodStats()["sleep()_void"]?.timeoutCount())
+    }
+
+    /**
+     * open 之后再 close 会抛出异常, 用于验证调用序列精简
+     * */
+    class CrashBean {
+        private var opened = false
+
+        fun open() {
+            opened = true
+        }
+
+        fun noop() {
+        }
+
+        fun close() {
+            check(!opened) { "close after open" }
+        }
+    }
+
+    /**
+     * 精简异常调用序列, 并按异常堆栈分类
+     * */
+    @Test
+    fun minimizeTest() {
+        val steps = listOf("noop", "open", "noop", "noop", "close", "noop")
+            .map { FunTraverseMinimizer.Step("$it()_void", -1) }
+        val result = FunTraverseMinimizer(FunTraverseUtil.create(CrashBean()), { CrashBean() }, 2)
+            .minimize(steps)
+
+        Assert.assertEquals(listOf("open()_void", "close()_void"), result.steps.map { it.signature })
+        Assert.assertTrue(result.failure?.throwable is IllegalStateException)
+
+        val buckets = FunTraverseCrashBuckets()
+        buckets.add(result.failure!!.throwable, result.steps)
+        buckets.add(RuntimeException(FunTraverseUtil.create(CrashBean()).replay(steps)!!.throwable))
+        Assert.assertEquals(1, buckets.getBuckets().size)
+        Assert.assertEquals(2, buckets.getBuckets()[0].count())
+        LoggerUtil.d(TAG, buckets.generateReport())
+    }
+
+    /**
+     * 反馈驱动模式, 执行异常后继续执行并按异常分类记录
+     * */
+    @Test
+    fun coverageGuidedTest() {
+        val buckets = FunTraverseCrashBuckets()
+        val util = FunTraverseUtil.create(CrashBean())
+            .setCoverageGuided(50, buckets)
+            .invokeAllPublic()
+
+        Assert.assertTrue(util.usedMethodArgGroupIndexMap.isEmpty()) // 均为无参方法
+        Assert.assertEquals(1, buckets.getBuckets().size)
+        Assert.assertTrue(buckets.getBuckets()[0].steps!!.last().signature == "close()_void")
+    }
+
     /**
      * 验证日志持久化操作
      * */
@@ -85,5 +265,49 @@ class FuncTraverseTest {
                 }
             })
             .invokeAllPublic()
+        perUtil.close()
+    }
+
+    /**
+     * 并行执行时在 addInvokePlannedAction 中记录日志, 记录的日志可按串行顺序回放
+     * */
+    @Test
+    fun traverseParallelPersistenceTest() {
+        val context = InstrumentationRegistry.getInstrumentation().context
+        val logDir = "${context.getExternalFilesDir(null)!!.absolutePath}/parallel/"
+
+        val perUtil = FunTraversePersistenceUtil(FuncTraverseBean::class.java, logDir)
+            .deleteLogFile(FunTraversePersistenceUtil.LOG_METHOD_ARG_INDEX)
+        val plannedSteps = mutableListOf<FunTraverseMinimizer.Step>() // 调用线程中回调, 无需同步
+        val traverseUtil = FunTraverseUtil.create(FuncTraverseBean())
+            .enableDefaultMultiArtTypeValues()
+            .setMaxArgValueGroupSize(-1)
+            .setParallelism(4) { FuncTraverseBean() }
+            .addInvokePlannedAction(object : ProxyUtil.IFuncInvokeCallback {
+                override fun onFuncInvoke(
+                    method: Method,
+                    returnObj: Any?,
+                    argGroupIndex: Int,
+                    args: Array<out Any?>?
+                ): EnabledResult<Any>? {
+                    val methodSignature = FunTraverseUtil.getMethodSignature(method)
+                    plannedSteps.add(FunTraverseMinimizer.Step(methodSignature, argGroupIndex))
+                    perUtil.writeMethodArgIndex2Log(methodSignature, argGroupIndex)
+                    return null
+                }
+            })
+            .invokeAllPublic()
+        perUtil.close()
+
+        // 日志中的调用序列与串行执行顺序一致, 且各方法的实参组合序号完整
+        val journalPath = "${logDir}fun_traverse_log/${FunTraversePersistenceUtil.LOG_METHOD_ARG_INDEX}"
+        Assert.assertEquals(plannedSteps, FunTraverseMinimizer.loadSteps(journalPath))
+
+        val replayMap = FunTraversePersistenceUtil(FuncTraverseBean::class.java, logDir).methodArgGroupIndexMapFromLog
+        Assert.assertTrue(traverseUtil.usedMethodArgGroupIndexMap.isNotEmpty())
+        traverseUtil.usedMethodArgGroupIndexMap.forEach { (signature, indexes) ->
+            Assert.assertEquals(indexes, replayMap[signature])
+        }
+        Assert.assertNull(traverseUtil.replay(FunTraverseMinimizer.loadSteps(journalPath), FuncTraverseBean()))
     }
 }
\ No newline at end of file
@@ -109,6 +109,20 @@ class RecookInvocationHandlerTest {
         Assert.assertEquals(0.toChar(), onInvoke2)
     }
 
+    /**
+     * 预热后, 相同接口列表复用同一代理类
+     * */
+    @Test
+    fun proxyWarmUpTest() {
+        ProxyUtil.warmUp(listOf(ISimpleObserver::class.java, ISimpleObserver2::class.java)).join()
+
+        val proxy1 = RecookInvocationHandler(null, arrayOf(ISimpleObserver::class.java)).newProxyInstance()
+        val proxy2 = RecookInvocationHandler(null, arrayOf(ISimpleObserver::class.java)).newProxyInstance()
+        Assert.assertNotSame(proxy1, proxy2)
+        Assert.assertSame(proxy1.javaClass, proxy2.javaClass)
+        Assert.assertTrue(proxy1 is ISimpleObserver)
+    }
+
     /**
      * 验证可对现有接口实现类进行增强
      * 通过动态代理, 在实现类方法触发前后执行其他操作
@@ -28,12 +28,112 @@ class ReflectUtilTest {
         LoggerUtil.d(TAG, "obj.toString=${method?.invoke(obj)}")
     }
 
+    /**
+     * 方法查找结果(包括未找到)会被缓存
+     * */
+    @Test
+    fun getDeclaredMethodCacheTest() {
+        val user = User()
+        val m1 = ReflectUtil.getDeclaredMethod(user, "updateGender", String::class.java, String::class.java)
+        val m2 = ReflectUtil.getDeclaredMethod(User::class.java, "updateGender", String::class.java, String::class.java)
+        Assert.assertNotNull(m1)
+        Assert.assertSame(m1, m2)
+
+        // 继承自父类的方法
+        Assert.assertNotNull(ReflectUtil.getDeclaredMethod(user, "hashCode"))
+        Assert.assertNull(ReflectUtil.getDeclaredMethod(user, "notExistMethod"))
+        Assert.assertNull(ReflectUtil.getDeclaredMethod(user, "notExistMethod"))
+        Assert.assertNull(ReflectUtil.getRefClass("org.lynxz.utils.NotExistClass"))
+        Assert.assertSame(User::class.java, ReflectUtil.getRefClass(User::class.java.name))
+    }
+
+    /**
+     * 多线程同时获取同一个类的元数据, 仅会创建一份
+     * */
+    @Test
+    fun classMetaConcurrentTest() {
+        ReflectMetaCache.clear()
+        val metas = java.util.concurrent.ConcurrentLinkedQueue<ReflectMetaCache.ClassMeta>()
+        val threads = (0 until 8).map {
+            Thread { repeat(100) { metas.add(ReflectMetaCache.getClassMeta(User::class.java)) } }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+        Assert.assertEquals(1, metas.distinct().size)
+
+        // 未找到的类数量超出上限时会被清理, 不会一直增长
+        repeat(ReflectMetaCache.MAX_NOT_FOUND_SIZE + 10) {
+            Assert.assertNull(ReflectUtil.getRefClass("org.lynxz.utils.NotExistClass$it"))
+        }
+        Assert.assertSame(User::class.java, ReflectUtil.getRefClass(User::class.java.name))
+    }
+
+    @Test
+    fun objectReaderTest() {
+        val reader = ReflectUtil.getObjectReader(User::class.java)
+        Assert.assertSame(reader, ReflectUtil.getObjectReader(User::class.java))
+
+        val user = User().apply { gender = User.FEMALE }
+        Assert.assertEquals(User.FEMALE, reader.read(user)["gender"])
+
+        val values = reader.readTo(user)
+        val index = reader.accessors.indexOfFirst { it.name == "gender" }
+        Assert.assertEquals(User.FEMALE, values[index])
+
+        reader.getAccessor("gender")?.set(user, User.MALE)
+        Assert.assertEquals(User.MALE, user.gender)
+    }
+
     @Test
     fun generateDefaultTypeValueListTest() {
         val list = ReflectUtil.generateDefaultTypeValueList(Int::class.java)
         Assert.assertTrue(list.contains(0))
         Assert.assertTrue(list.contains(Int.MAX_VALUE))
         Assert.assertTrue(list.contains(Int.MIN_VALUE))
+
+        // 返回的是缓存结果的副本, 修改后不影响后续结果
+        list.clear()
+        Assert.assertEquals(3, ReflectUtil.generateDefaultTypeValueList(Int::class.java).size)
+        Assert.assertEquals(0, ReflectUtil.generateDefaultTypeValue(Int::class.java))
+        Assert.assertNull(ReflectUtil.generateDefaultTypeValue(String::class.java))
+
+        // 接口的默认实例每次重新创建, 不在调用方之间共用
+        val observer1 = ReflectUtil.generateDefaultTypeValueList(ISimpleObserver::class.java)[1]
+        val observer2 = ReflectUtil.generateDefaultTypeValueList(ISimpleObserver::class.java)[1]
+        Assert.assertNotSame(observer1, observer2)
+    }
+
+    /**
+     * 首次获取默认值后再设置自定义生成器, 生成器仍然生效
+     * */
+    @Test
+    fun generateDefaultTypeValueListWithCustomGeneratorTest() {
+        val defaultObserver = ReflectUtil.generateDefaultTypeValueList(ISimpleObserver::class.java)[1]
+        val enumValues = ReflectUtil.generateDefaultTypeValueList(EnumStatusBean::class.java)
+
+        val customObserver = object : ISimpleObserver {
+            override fun onInvoke(msg: String?) {}
+            override fun onInvoke1() {}
+            override fun onInvoke2() {}
+        }
+        val customEnum = EnumStatusBean.values().last()
+        ProxyUtil.customProxyGenerator = object : ProxyUtil.IFuncInvokeCallback.ICustomGenerator {
+            @Suppress("UNCHECKED_CAST")
+            override fun <T> generate(clz: Class<T>?, callback: ProxyUtil.IFuncInvokeCallback?): EnabledResult<T>? =
+                when (clz) {
+                    ISimpleObserver::class.java -> EnabledResult(customObserver as T)
+                    EnumStatusBean::class.java -> EnabledResult(customEnum as T)
+                    else -> null
+                }
+        }
+        try {
+            Assert.assertNotSame(customObserver, defaultObserver)
+            Assert.assertSame(customObserver, ReflectUtil.generateDefaultTypeValueList(ISimpleObserver::class.java)[1])
+            Assert.assertEquals(customEnum, ReflectUtil.generateDefaultTypeValueList(EnumStatusBean::class.java)[1])
+        } finally {
+            ProxyUtil.customProxyGenerator = null
+        }
+        Assert.assertEquals(enumValues, ReflectUtil.generateDefaultTypeValueList(EnumStatusBean::class.java))
     }
 
     /**
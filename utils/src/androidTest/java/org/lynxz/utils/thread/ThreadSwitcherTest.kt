@@ -1,5 +1,6 @@
 package org.lynxz.utils.thread
 
+import android.os.HandlerThread
 import android.os.Looper
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import org.junit.Assert
@@ -7,6 +8,7 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.lynxz.utils.log.LoggerUtil
 import org.lynxz.utils.observer.ISimpleObserver
+import java.util.concurrent.CountDownLatch
 import kotlin.concurrent.thread
 
 /**
@@ -281,4 +283,104 @@ class ThreadSwitcherTest {
         Thread.sleep(1000)
         Assert.assertFalse("收到了onInvoke回调", onOuterInvoke[0])
     }
-}
\ No newline at end of file
+
+    /**
+     * 目标线程卡顿时, 待切换任务队列按指定策略丢弃/合并任务
+     * */
+    @Test(timeout = 30000)
+    fun queueOverflowTest() {
+        val handlerThread = HandlerThread("queueOverflowTest").apply { start() }
+        val switcher = ThreadSwitcher.newInstance(
+            handlerThread.looper,
+            DispatchQueue.Config(3, DispatchQueue.OverflowStrategy.DROP_OLDEST)
+        )
+        val innerObserver = switcher.generateInnerObserverImpl(ISimpleObserver::class.java)
+
+        val receivedMsgList = mutableListOf<String?>()
+        switcher.registerOuterObserver(object : ISimpleObserver {
+            override fun onInvoke(msg: String?) {
+                receivedMsgList.add(msg)
+            }
+
+            override fun onInvoke1() {
+            }
+
+            override fun onInvoke2() {
+            }
+        }, ISimpleObserver::class.java)
+
+        // 阻塞目标线程, 使后续回调堆积在队列中
+        val blockLatch = CountDownLatch(1)
+        val blockStartLatch = CountDownLatch(1)
+        switcher.runOnTargetThread {
+            blockStartLatch.countDown()
+            blockLatch.await()
+        }
+        blockStartLatch.await()
+        for (i in 0 until 10) {
+            innerObserver.onInvoke("msg$i")
+        }
+        blockLatch.countDown()
+        Thread.sleep(1000)
+
+        // 队列最多保留3个任务, 仅最后3个回调被执行
+        val stats = switcher.getDispatchStats()
+        LoggerUtil.w(TAG, "queueOverflowTest stats=$stats, receivedMsgList=$receivedMsgList")
+        Assert.assertEquals(listOf("msg7", "msg8", "msg9"), receivedMsgList)
+        Assert.assertEquals(0, stats.queued)
+        Assert.assertEquals(7L, stats.dropped)
+        Assert.assertEquals(4L, stats.delivered)
+
+        switcher.release()
+        handlerThread.quitSafely()
+    }
+
+    /**
+     * COALESCE 策略仅在队列已满时合并相同key(同一outerObserver的同一方法)的任务, 未满时不合并
+     * */
+    @Test(timeout = 30000)
+    fun queueCoalesceTest() {
+        val handlerThread = HandlerThread("queueCoalesceTest").apply { start() }
+        val switcher = ThreadSwitcher.newInstance(
+            handlerThread.looper,
+            DispatchQueue.Config(3, DispatchQueue.OverflowStrategy.COALESCE)
+        )
+        val innerObserver = switcher.generateInnerObserverImpl(ISimpleObserver::class.java)
+
+        val receivedMsgList = mutableListOf<String?>()
+        switcher.registerOuterObserver(object : ISimpleObserver {
+            override fun onInvoke(msg: String?) {
+                receivedMsgList.add(msg)
+            }
+
+            override fun onInvoke1() {
+            }
+
+            override fun onInvoke2() {
+            }
+        }, ISimpleObserver::class.java)
+
+        val blockLatch = CountDownLatch(1)
+        val blockStartLatch = CountDownLatch(1)
+        switcher.runOnTargetThread {
+            blockStartLatch.countDown()
+            blockLatch.await()
+        }
+        blockStartLatch.await()
+        for (i in 0 until 10) {
+            innerObserver.onInvoke("msg$i")
+        }
+        blockLatch.countDown()
+        Thread.sleep(1000)
+
+        // 前3个回调正常入队, 之后队列已满, 均合并到最后入队的任务中
+        val stats = switcher.getDispatchStats()
+        LoggerUtil.w(TAG, "queueCoalesceTest stats=$stats, receivedMsgList=$receivedMsgList")
+        Assert.assertEquals(listOf("msg0", "msg1", "msg9"), receivedMsgList)
+        Assert.assertEquals(0L, stats.dropped)
+        Assert.assertEquals(7L, stats.coalesced)
+
+        switcher.release()
+        handlerThread.quitSafely()
+    }
+}
@@ -129,12 +129,7 @@ object AssetUtil {
             } else { // 普通文件,直接复制
                 inputStream = assetManager.open(assetFilePath)
                 outputStream = FileOutputStream(destFilePath)
-                val buff = ByteArray(1024)
-                var len: Int
-                while (inputStream.read(buff).also { len = it } >= 0) {
-                    outputStream.write(buff, 0, len)
-                }
-                outputStream.flush()
+                FileCopier.copyStream(inputStream, outputStream)
             }
             true
         } catch (e: IOException) {
@@ -0,0 +1,157 @@
+package org.lynxz.utils
+
+import android.os.SystemClock
+import java.io.BufferedWriter
+import java.io.Closeable
+import java.io.File
+import java.io.FileOutputStream
+import java.io.Flushable
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.nio.charset.Charset
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * 长期持有的文件追加写入工具, 通过 [FileUtil.openAppender] 获取, 多线程安全
+ * 与 [FileUtil.writeToFile] 相比, 无需每次写入都创建文件, 打开及关闭文件, 适用于循环中频繁追加少量内容(如日志)的场景
+ * 1. 写入内容先缓存在内存中, 缓冲区已满, 距上次刷新超过 flushIntervalMs 或调用 [flush] 时写入文件
+ * 2. 被 [FileUtil] 缓存池淘汰时仅关闭文件, 再次写入时自动重新打开, 调用 [close] 后不可再写入
+ *
+ * @param file 目标文件, 不存在时自动创建
+ * @param bufferSize 缓冲区大小, 单位: 字符
+ * @param flushIntervalMs 自动刷新的间隔, 0表示每次写入后均刷新, 负数表示仅在缓冲区已满或手动刷新时写入文件, 单位: ms
+ */
+class FileAppender internal constructor(
+    val file: File,
+    private val charset: Charset,
+    private val bufferSize: Int,
+    private val flushIntervalMs: Long
+) : Flushable, Closeable {
+
+    private val lock = Any()
+    private var writer: BufferedWriter? = null
+    private var flushFuture: ScheduledFuture<*>? = null
+    private var dirty = false
+    private var lastFlushTs = 0L
+
+    @Volatile
+    private var closed = false
+
+    /**
+     * 是否已关闭
+     */
+    val isClosed: Boolean
+        get() = closed
+
+    /**
+     * 追加内容到文件末尾
+     * @param msg 待写入的内容
+     * @param autoAddCTRL 是否在末尾添加换行符(\r\n), 与 [FileUtil.writeToFile] 一致
+     * @return 是否写入成功, 已关闭时返回false
+     */
+    @JvmOverloads
+    fun append(msg: CharSequence?, autoAddCTRL: Boolean = false): Boolean {
+        var opened = false
+        val result = synchronized(lock) {
+            if (closed) {
+                return false
+            }
+            try {
+                val tWriter = writer ?: open().also { opened = true }
+                tWriter.append(msg ?: "")
+                if (autoAddCTRL) {
+                    tWriter.write("\r\n")
+                }
+                dirty = true
+                if (flushIntervalMs == 0L
+                    || (flushIntervalMs > 0 && SystemClock.elapsedRealtime() - lastFlushTs >= flushIntervalMs)
+                ) {
+                    flushLocked()
+                }
+                true
+            } catch (e: IOException) {
+                e.printStackTrace()
+                release()
+                false
+            }
+        }
+        // 不持有本对象锁时再加入缓存池, 避免与缓存池淘汰其他appender时死锁
+        if (opened) {
+            FileUtil.onAppenderOpened(this)
+        }
+        return result
+    }
+
+    /**
+     * 将缓存的内容写入文件
+     */
+    override fun flush() {
+        synchronized(lock) {
+            try {
+                flushLocked()
+            } catch (e: IOException) {
+                e.printStackTrace()
+            }
+        }
+    }
+
+    /**
+     * 写入缓存的内容并关闭文件, 之后不可再写入, 同时从 [FileUtil] 缓存池中移除
+     */
+    override fun close() {
+        synchronized(lock) {
+            if (closed) {
+                return
+            }
+            closed = true
+            release()
+        }
+        FileUtil.onAppenderClosed(this)
+    }
+
+    /**
+     * 写入缓存的内容并关闭文件, 再次写入时重新打开, 用于缓存池淘汰
+     */
+    internal fun release() {
+        synchronized(lock) {
+            flushFuture?.cancel(false)
+            flushFuture = null
+            writer.closeSafety()
+            writer = null
+            dirty = false
+        }
+    }
+
+    private fun open(): BufferedWriter {
+        file.parentFile?.mkdirs()
+        val tWriter = BufferedWriter(OutputStreamWriter(FileOutputStream(file, true), charset), bufferSize)
+        writer = tWriter
+        lastFlushTs = SystemClock.elapsedRealtime()
+        if (flushIntervalMs > 0) { // 定时刷新, 避免长时间无写入时内容一直缓存在内存中
+            flushFuture = scheduler.scheduleWithFixedDelay(
+                { flush() }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS
+            )
+        }
+        return tWriter
+    }
+
+    private fun flushLocked() {
+        if (dirty) {
+            writer?.flush()
+            dirty = false
+        }
+        lastFlushTs = SystemClock.elapsedRealtime()
+    }
+
+    companion object {
+        // 所有appender共用的定时刷新线程
+        private val scheduler: ScheduledExecutorService by lazy {
+            ScheduledThreadPoolExecutor(1) { r ->
+                Thread(r, "FileAppender-flush").apply { isDaemon = true }
+            }.apply { removeOnCancelPolicy = true }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.lynxz.utils
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * 文件复制工具, 由 [FileUtil.copy] 使用
+ * 1. 单文件: 优先使用 [FileChannel.transferTo] (由系统在内核中完成复制, 如 sendfile), 不支持时使用大缓冲区读写
+ * 2. 目录: 调用线程遍历目录并创建子目录, 普通文件提交到固定大小的线程池中并行复制, 任一文件复制失败时停止复制剩余文件
+ * 3. 复制进度: [OnProgressListener], 设置后会先统计待复制的总字节数
+ * 4. 可选保留文件及目录的最后修改时间, 默认不保留
+ *
+ * @param parallelism 复制目录时的并发数, 小于等于1表示在调用线程串行复制
+ * @param preserveTimestamp 是否保留源文件的最后修改时间, 默认false
+ * @param listener 复制进度回调, 在执行复制的线程中回调, 可空
+ */
+class FileCopier @JvmOverloads constructor(
+    private val parallelism: Int = 1,
+    private val preserveTimestamp: Boolean = false,
+    private val listener: OnProgressListener? = null
+) {
+
+    /**
+     * 复制进度回调, 并行复制目录时可能在多个线程中同时回调
+     */
+    interface OnProgressListener {
+        /**
+         * @param file 当前正在复制的源文件
+         * @param copiedBytes 已复制的总字节数
+         * @param totalBytes 待复制的总字节数
+         */
+        fun onProgress(file: File, copiedBytes: Long, totalBytes: Long)
+    }
+
+    private var totalBytes = 0L
+    private val copiedBytes = AtomicLong(0)
+    private val failed = AtomicBoolean(false)
+
+    /**
+     * 复制文件或目录, 目标文件已存在时覆盖
+     *
+     * @param src 源文件或目录
+     * @param dst 目标文件或目录, src是目录时, 其子文件复制到dst目录下
+     * @return 是否全部复制成功
+     */
+    fun copy(src: File, dst: File): Boolean {
+        if (!src.exists()) {
+            return false
+        }
+        copiedBytes.set(0)
+        failed.set(false)
+        totalBytes = if (listener == null) 0 else sizeOf(src)
+
+        if (!src.isDirectory) {
+            return copyFileSafety(src, dst)
+        }
+
+        val executor = if (parallelism > 1) Executors.newFixedThreadPool(parallelism) else null
+        try {
+            val futures = mutableListOf<Future<*>>()
+            val dirs = mutableListOf<Pair<File, File>>()
+            copyDir(src, dst, executor, futures, dirs)
+            futures.forEach { it.get() }
+
+            // 子文件复制完成后再设置目录的修改时间, 由深到浅
+            if (preserveTimestamp) {
+                dirs.asReversed().forEach { (srcDir, dstDir) -> dstDir.setLastModified(srcDir.lastModified()) }
+            }
+        } catch (e: Exception) {
+            e.printStackTrace()
+            failed.set(true)
+        } finally {
+            executor?.shutdownNow()
+        }
+        return !failed.get()
+    }
+
+    // 遍历目录, 创建子目录并提交普通文件的复制任务
+    private fun copyDir(
+        srcDir: File,
+        dstDir: File,
+        executor: ExecutorService?,
+        futures: MutableList<Future<*>>,
+        dirs: MutableList<Pair<File, File>>
+    ) {
+        if (!dstDir.isDirectory && !dstDir.mkdirs()) {
+            failed.set(true)
+            return
+        }
+        dirs.add(srcDir to dstDir)
+        srcDir.listFiles()?.forEach { file ->
+            if (failed.get()) { // 任一文件复制失败,则退出,整个目录复制失败
+                return
+            }
+            val dstFile = File(dstDir, file.name)
+            when {
+                file.isDirectory -> copyDir(file, dstFile, executor, futures, dirs)
+                executor == null -> copyFileSafety(file, dstFile)
+                else -> futures.add(executor.submit(Runnable {
+                    if (!failed.get()) {
+                        copyFileSafety(file, dstFile)
+                    }
+                }))
+            }
+        }
+    }
+
+    private fun copyFileSafety(src: File, dst: File): Boolean = try {
+        dst.parentFile?.mkdirs()
+        copyFile(src, dst)
+        if (preserveTimestamp) {
+            dst.setLastModified(src.lastModified())
+        }
+        true
+    } catch (e: IOException) {
+        e.printStackTrace()
+        failed.set(true)
+        false
+    }
+
+    private fun copyFile(src: File, dst: File) {
+        var fis: FileInputStream? = null
+        var fos: FileOutputStream? = null
+        try {
+            fis = FileInputStream(src)
+            fos = FileOutputStream(dst)
+            transfer(src, fis.channel, fos.channel)
+        } finally {
+            fis.closeSafety()
+            fos.closeSafety()
+        }
+    }
+
+    /**
+     * 复制 inChannel 从当前位置到末尾(EOF)的内容到 outChannel
+     * 先按起始时的文件大小使用 transferTo 复制, 剩余部分使用缓冲区读取直到 EOF:
+     * 1. 大小为0的文件(如 /proc, sysfs 下的文件)实际可能有内容
+     * 2. 复制过程中文件增长的部分
+     * 3. 部分文件系统不支持 transferTo
+     */
+    private fun transfer(src: File, inChannel: FileChannel, outChannel: FileChannel) {
+        val size = inChannel.size()
+        var position = inChannel.position()
+        while (position < size) {
+            val len = inChannel.transferTo(position, minOf(size - position, MAX_TRANSFER_SIZE), outChannel)
+            if (len <= 0) {
+                break
+            }
+            position += len
+            onCopied(src, len)
+        }
+        inChannel.position(position)
+        copyByBuffer(src, inChannel, outChannel)
+    }
+
+    private fun copyByBuffer(src: File, inChannel: FileChannel, outChannel: FileChannel) {
+        val buffer = ByteBuffer.allocate(BUFFER_SIZE)
+        while (inChannel.read(buffer) != -1) {
+            buffer.flip()
+            val len = buffer.remaining()
+            while (buffer.hasRemaining()) {
+                outChannel.write(buffer)
+            }
+            buffer.clear()
+            onCopied(src, len.toLong())
+        }
+    }
+
+    private fun onCopied(src: File, len: Long) {
+        val copied = copiedBytes.addAndGet(len)
+        listener?.onProgress(src, copied, totalBytes)
+    }
+
+    private fun sizeOf(file: File): Long =
+        if (file.isDirectory) file.listFiles()?.sumOf { sizeOf(it) } ?: 0L else file.length()
+
+    companion object {
+        /**
+         * 缓冲区复制时的缓冲区大小
+         */
+        const val BUFFER_SIZE = 256 * 1024
+
+        // 单次 transferTo 的最大字节数, 避免部分系统对单次传输长度的限制, 同时可以定期回调进度
+        private const val MAX_TRANSFER_SIZE = 8L * 1024 * 1024
+
+        /**
+         * 使用大缓冲区复制流, 不关闭流
+         * @return 复制的字节数
+         */
+        @JvmStatic
+        fun copyStream(inputStream: InputStream, outputStream: OutputStream): Long {
+            val buffer = ByteArray(BUFFER_SIZE)
+            var total = 0L
+            var len = inputStream.read(buffer)
+            while (len != -1) {
+                outputStream.write(buffer, 0, len)
+                total += len
+                len = inputStream.read(buffer)
+            }
+            outputStream.flush()
+            return total
+        }
+    }
+}
@@ -4,6 +4,7 @@ package org.lynxz.utils
 
 import android.graphics.Bitmap
 import android.graphics.Bitmap.CompressFormat
+import android.os.Build
 import android.os.Environment
 import android.os.StatFs
 import android.text.TextUtils
@@ -14,11 +15,18 @@ import java.io.FileInputStream
 import java.io.FileOutputStream
 import java.io.FileWriter
 import java.io.IOException
-import java.io.InputStream
+import java.io.RandomAccessFile
+import java.lang.ref.WeakReference
 import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
 import java.nio.channels.FileChannel
-import java.util.Arrays
+import java.nio.charset.Charset
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
 import java.util.regex.Pattern
+import java.util.zip.CRC32
+import java.util.zip.CRC32C
+import java.util.zip.Checksum
 
 /**
  * 文件相关操作
@@ -27,6 +35,31 @@ import java.util.regex.Pattern
 object FileUtil {
     private const val TAG = "FileUtil"
 
+    /**
+     * 可读取到单个数组或buffer中的最大字节数, 部分虚拟机无法创建长度为 [Int.MAX_VALUE] 的数组
+     */
+    const val MAX_ARRAY_SIZE = Int.MAX_VALUE - 8
+
+    // 文件大小未知时的初始缓冲区大小, 以及 [FileAppender] 默认缓冲区大小
+    private const val BUFFER_SIZE = 8 * 1024
+
+    /**
+     * 同时打开的 [FileAppender] 的最大数量
+     */
+    const val APPENDER_POOL_SIZE = 8
+
+    // 按最近使用顺序排列的 appender 缓存池, key为文件绝对路径
+    private val appenderPool = LinkedHashMap<String, FileAppender>(16, 0.75f, true)
+
+    // 被缓存池淘汰但未关闭的 appender, 仍可能被调用方持有, 再次打开同一路径时复用, 避免同一文件存在多个实例交替写入
+    private val evictedAppenders = HashMap<String, WeakReference<FileAppender>>()
+
+    // [writeAtomically] 校验信息
+    private const val CHECKSUM_FOOTER_SIZE = 8
+    private const val CHECKSUM_CRC32: Byte = 1
+    private const val CHECKSUM_CRC32C: Byte = 2
+    private val CHECKSUM_MAGIC = byteArrayOf('L'.code.toByte(), 'Z'.code.toByte(), 'C'.code.toByte())
+
     /**
      * 检查文件是否存在
      */
@@ -93,24 +126,31 @@ object FileUtil {
     }
 
     /**
-     * 删除指定目录下符合正则规则的文件
+     * 删除指定目录下符合正则规则的文件(只判断其一级子文件名), 子目录满足规则时删除整个子目录
+     * 更多过滤条件可直接使用 [FileWalker]
+     *
+     * @param parallelism 并行删除的线程数, 小于等于1表示串行删除
      */
+    @JvmOverloads
     fun deleteByPattern(
         dirPath: String,
         fileNamePattern: String,
-        ignoreCase: Boolean = false
-    ): Boolean = !listSubFileNames(dirPath, fileNamePattern, ignoreCase)
-        .map { "$dirPath/$it" }
-        .map { processPath(it) }
-        .map { delete(it) }
-        .any { !it }
+        ignoreCase: Boolean = false,
+        parallelism: Int = 1
+    ): Boolean = FileWalker(File(processPath(dirPath)))
+        .maxDepth(1)
+        .includeDirectories(true)
+        .regex(fileNamePattern, ignoreCase)
+        .parallelism(parallelism)
+        .delete()
 
     /**
      * 删除文件
      * P.S. 建议调用方自行先对待删除的文件/目录进行重命名,然后调用本方法
      */
     @JvmStatic
-    fun delete(target: File): Boolean {
+    @JvmOverloads
+    fun delete(target: File, parallelism: Int = 1): Boolean {
         if (!target.exists()) { // 文件不存在,等效于删除成功
             return true
         }
@@ -120,10 +160,8 @@ object FileUtil {
             return target.delete()
         }
 
-        // 目录文件,递归删除
-        for (file in target.listFiles()) {
-            delete(file)
-        }
+        // 目录文件,删除所有子文件
+        FileWalker(target).includeDirectories(true).parallelism(parallelism).delete()
         return target.delete() // 删除空目录本身
     }
 
@@ -141,42 +179,143 @@ object FileUtil {
         }
         val dest = File(destFilePath)
         dest.parentFile.mkdirs()
-        return srcFile.renameTo(dest)
+        val success = moveReplacing(srcFile, dest)
+        if (!success) {
+            LoggerUtil.w(TAG, "rename fail: $srcFilePath -> $destFilePath")
+        }
+        return success
     }
 
     /**
-     * 读取文件原始字节数组
+     * 读取文件原始字节数组, 数组长度与实际读取的字节数一致
+     * 文件大于 [MAX_ARRAY_SIZE](约2GB) 时无法读取到数组中, 返回空数组, 可使用 [map] 访问
+     * 对于大小未知的文件(如 /proc 下的文件, size为0), 会一直读取到文件末尾
      */
     @JvmStatic
     fun readAllBytes(absPath: String?): ByteArray {
         var result = ByteArray(0)
-        if (absPath.isNullOrBlank()) {
-            return result
-        }
-        val file = File(absPath)
-        if (!file.exists()) {
-            return result
-        }
-        var channel: FileChannel? = null
+        val file = getReadableFile(absPath) ?: return result
         var fs: FileInputStream? = null
         return try {
             fs = FileInputStream(file)
-            channel = fs.channel
-            val byteBuffer = ByteBuffer.allocate(channel.size().toInt())
-            while (channel.read(byteBuffer) > 0) {
-                // do nothing
+            val channel = fs.channel
+            val size = channel.size()
+            if (size > MAX_ARRAY_SIZE) {
+                LoggerUtil.w(TAG, "readAllBytes fail: file is too large, size=$size,path=$absPath")
+                return result
+            }
+
+            var byteBuffer = ByteBuffer.allocate(if (size > 0) size.toInt() else BUFFER_SIZE)
+            while (true) {
+                readFully(channel, byteBuffer)
+                if (byteBuffer.hasRemaining()) { // 已到达文件末尾
+                    break
+                }
+                // 文件在读取过程中变大或大小未知, 扩容后继续读取
+                val next = fs.read()
+                if (next == -1) {
+                    break
+                }
+                val capacity = byteBuffer.capacity()
+                if (capacity >= MAX_ARRAY_SIZE) {
+                    LoggerUtil.w(TAG, "readAllBytes fail: file is too large, path=$absPath")
+                    return result
+                }
+                val newCapacity = minOf(maxOf(capacity.toLong() * 2, BUFFER_SIZE.toLong()), MAX_ARRAY_SIZE.toLong()).toInt()
+                byteBuffer = ByteBuffer.wrap(byteBuffer.array().copyOf(newCapacity)).apply {
+                    position(capacity)
+                    put(next.toByte())
+                }
             }
-            result = byteBuffer.array()
+            val array = byteBuffer.array()
+            result = if (byteBuffer.position() == array.size) array else array.copyOf(byteBuffer.position())
             result
         } catch (e: IOException) {
             e.printStackTrace()
             result
         } finally {
-            channel.closeSafety()
             fs.closeSafety()
         }
     }
 
+    /**
+     * 读取文件内容到堆外内存(direct buffer), 避免占用java堆内存, 适用于需传递给 native 层的数据(如模型文件)
+     * 文件大于 [MAX_ARRAY_SIZE](约2GB) 时返回null
+     *
+     * @return position为0, limit为实际读取的字节数的buffer, 失败时返回null
+     */
+    @JvmStatic
+    fun readToDirectBuffer(absPath: String?): ByteBuffer? {
+        val file = getReadableFile(absPath) ?: return null
+        var fs: FileInputStream? = null
+        return try {
+            fs = FileInputStream(file)
+            val channel = fs.channel
+            val size = channel.size()
+            if (size > MAX_ARRAY_SIZE) {
+                LoggerUtil.w(TAG, "readToDirectBuffer fail: file is too large, size=$size,path=$absPath")
+                return null
+            }
+            val byteBuffer = ByteBuffer.allocateDirect(size.toInt())
+            readFully(channel, byteBuffer)
+            byteBuffer.flip()
+            byteBuffer
+        } catch (e: IOException) {
+            e.printStackTrace()
+            null
+        } finally {
+            fs.closeSafety()
+        }
+    }
+
+    /**
+     * 以只读方式将文件映射到内存, 不会复制文件内容到java堆中, 由系统按需加载, 适用于只读的大文件(如地图瓦片, 模型文件)
+     * 单次映射的长度不能超过 [MAX_ARRAY_SIZE](约2GB), 更大的文件可通过 position 分段映射
+     * 映射在返回的buffer被回收前一直有效, 与文件是否关闭无关
+     *
+     * @param position 映射的起始位置
+     * @param size 映射的长度, 负数表示映射到文件末尾
+     * @return 映射失败时返回null
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun map(absPath: String?, position: Long = 0, size: Long = -1): MappedByteBuffer? {
+        val file = getReadableFile(absPath) ?: return null
+        var raf: RandomAccessFile? = null
+        return try {
+            raf = RandomAccessFile(file, "r")
+            val fileSize = raf.length()
+            val mapSize = if (size < 0) fileSize - position else minOf(size, fileSize - position)
+            if (position < 0 || mapSize < 0 || mapSize > MAX_ARRAY_SIZE) {
+                LoggerUtil.w(TAG, "map fail: invalid range, position=$position,size=$mapSize,fileSize=$fileSize")
+                return null
+            }
+            raf.channel.map(FileChannel.MapMode.READ_ONLY, position, mapSize)
+        } catch (e: IOException) {
+            e.printStackTrace()
+            null
+        } finally {
+            raf.closeSafety()
+        }
+    }
+
+    private fun getReadableFile(absPath: String?): File? {
+        if (absPath.isNullOrBlank()) {
+            return null
+        }
+        val file = File(absPath)
+        return if (file.isFile) file else null
+    }
+
+    /**
+     * 读取内容直到buffer已满或到达文件末尾, channel.read 单次可能只读取部分内容
+     */
+    private fun readFully(channel: FileChannel, buffer: ByteBuffer) {
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            // do nothing
+        }
+    }
+
     /**
      * 按行读取指定文件的所有内容
      */
@@ -194,6 +333,54 @@ object FileUtil {
         return file.readLines()
     }
 
+    /**
+     * 按行流式读取文件内容, 仅使用固定大小的缓冲区, 无需将所有行读入内存
+     * 文件在 block 执行完毕后自动关闭, 因此 block 中需消费完所需的行, 不能将 Sequence 传出
+     *
+     * @param absPath 文件绝对路径
+     * @param charset 文件编码, 默认 UTF-8
+     * @param block 处理所有行, 如: lines.filter { it.isNotBlank() }.firstOrNull()
+     * @return block 的返回值, 文件不存在时返回null
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <R> useLines(absPath: String?, charset: Charset = Charsets.UTF_8, block: (Sequence<String>) -> R): R? {
+        if (absPath.isNullOrBlank()) {
+            return null
+        }
+        val file = File(absPath)
+        if (!file.isFile) {
+            return null
+        }
+        return file.bufferedReader(charset).use { block(it.lineSequence()) }
+    }
+
+    /**
+     * 从文件末尾开始逐行向前流式读取, 参考 [ReverseLineReader]
+     * 读取最后若干行时仅需读取文件末尾的少量数据, 与文件大小无关
+     *
+     * @param absPath 文件绝对路径
+     * @param charset 文件编码, 默认 UTF-8, 不支持 UTF-16
+     * @param block 处理所有行(从最后一行开始), 文件在 block 执行完毕后自动关闭
+     * @return block 的返回值, 文件不存在时返回null
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <R> useReversedLines(
+        absPath: String?,
+        charset: Charset = Charsets.UTF_8,
+        block: (Sequence<String>) -> R
+    ): R? {
+        if (absPath.isNullOrBlank()) {
+            return null
+        }
+        val file = File(absPath)
+        if (!file.isFile) {
+            return null
+        }
+        return ReverseLineReader(file, charset).use { block(it.asSequence()) }
+    }
+
     /**
      * 写文件
      * 若文件不存在,则会自动创建
@@ -280,100 +467,280 @@ object FileUtil {
     }
 
     /**
-     * 复制文件到指定位置
+     * 原子写入文件: 先写入同目录下的临时文件并同步到磁盘, 再重命名为目标文件
+     * 写入过程中进程崩溃或断电时, 目标文件要么是原内容, 要么是新内容, 不会出现部分写入的文件, 适用于配置, 状态等文件
      *
-     * @param fromPath 源文件路径,可以是目录
-     * @param toPath 目标位置
-     * @return 复制成功或失败(对单文件复制结果准确)
+     * @param msg 待写入的内容
+     * @param absFilePath 目标文件绝对路径, 已存在时替换
+     * @param withChecksum 是否在文件末尾添加校验信息, 添加后需通过 [readVerified] 读取
+     * @return 是否写入成功, 失败时目标文件保持不变
      */
     @JvmStatic
-    fun copy(fromPath: String?, toPath: String): Boolean {
-        val absPath = processPath(fromPath)
-        if (!isExist(absPath)) {
+    @JvmOverloads
+    fun writeAtomically(msg: ByteArray, absFilePath: String, withChecksum: Boolean = false): Boolean {
+        val tAbsPath = processPath(absFilePath)
+        if (tAbsPath.isBlank()) {
+            return false
+        }
+        val file = File(tAbsPath)
+        val parent = file.absoluteFile.parentFile ?: return false
+        if (!parent.isDirectory && !parent.mkdirs()) {
             return false
         }
 
-        val sep = File.separator
-        val srcFile = File(absPath)
-        var copyResult = true
-
-        if (srcFile.isDirectory) { // 目录-递归处理
-            create(toPath, true)
-            val files = srcFile.listFiles()
-            val len = files?.size ?: 0
-            if (len >= 1) {
-                for (i in 0 until len) {
-                    val file = files!![i]
-                    val dstFilePath = toPath + sep + file.name
-                    val copySuccess = copy(file.absolutePath, dstFilePath)
-                    if (!copySuccess) { // 任一文件复制失败,则退出,整个目录复制失败
-                        copyResult = false
-                        break
-                    }
-                }
+        var tmpFile: File? = null
+        var os: FileOutputStream? = null
+        return try {
+            tmpFile = File.createTempFile(".${file.name}-", ".tmp", parent)
+            os = FileOutputStream(tmpFile)
+            os.write(msg)
+            if (withChecksum) {
+                os.write(createChecksumFooter(msg, 0, msg.size))
+            }
+            os.flush()
+            os.fd.sync() // 重命名前确保内容已写入磁盘, 否则断电后可能得到空文件
+            os.close()
+            os = null
+            moveReplacing(tmpFile, file)
+        } catch (e: IOException) {
+            e.printStackTrace()
+            false
+        } finally {
+            os.closeSafety()
+            if (tmpFile?.exists() == true) { // 写入或重命名失败
+                tmpFile.delete()
             }
-        } else { // 文件-直接复制
-            var inputStream: InputStream? = null
-            var os: FileOutputStream? = null
-            val dstPath = if (toPath.endsWith(sep)) "${toPath}${srcFile.name}" else toPath
-            create(dstPath)
+        }
+    }
+
+    /**
+     * 原子写入文本, 参考 [writeAtomically]
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun writeAtomically(
+        msg: String?,
+        absFilePath: String,
+        withChecksum: Boolean = false,
+        charset: Charset = Charsets.UTF_8
+    ): Boolean = writeAtomically((msg ?: "").toByteArray(charset), absFilePath, withChecksum)
 
-            val dstFile = File(dstPath)
+    /**
+     * 读取通过 [writeAtomically] 写入且带校验信息的文件, 并校验内容
+     *
+     * @return 不含校验信息的文件内容, 文件不存在, 缺少校验信息或校验失败时返回null
+     */
+    @JvmStatic
+    fun readVerified(absPath: String?): ByteArray? {
+        val file = getReadableFile(absPath) ?: return null
+        val bytes = readAllBytes(absPath)
+        val dataLen = bytes.size - CHECKSUM_FOOTER_SIZE
+        if (dataLen < 0 || bytes.size.toLong() != file.length()) {
+            return null
+        }
+        val footer = ByteBuffer.wrap(bytes, dataLen, CHECKSUM_FOOTER_SIZE)
+        val checksum = footer.int
+        val algorithm = footer.get()
+        if (footer.get() != CHECKSUM_MAGIC[0] || footer.get() != CHECKSUM_MAGIC[1] || footer.get() != CHECKSUM_MAGIC[2]) {
+            LoggerUtil.w(TAG, "readVerified fail: checksum footer not found, path=$absPath")
+            return null
+        }
+        val crc = createChecksum(algorithm)
+        if (crc == null) {
+            LoggerUtil.w(TAG, "readVerified fail: unsupported checksum algorithm $algorithm, path=$absPath")
+            return null
+        }
+        crc.update(bytes, 0, dataLen)
+        if (crc.value.toInt() != checksum) {
+            LoggerUtil.w(TAG, "readVerified fail: checksum mismatch, path=$absPath")
+            return null
+        }
+        return bytes.copyOf(dataLen)
+    }
+
+    // 校验信息: 校验值(4字节) + 算法(1字节) + 魔数(3字节)
+    private fun createChecksumFooter(bytes: ByteArray, offset: Int, len: Int): ByteArray {
+        val algorithm = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) CHECKSUM_CRC32C else CHECKSUM_CRC32
+        val crc = createChecksum(algorithm)!!
+        crc.update(bytes, offset, len)
+        return ByteBuffer.allocate(CHECKSUM_FOOTER_SIZE)
+            .putInt(crc.value.toInt())
+            .put(algorithm)
+            .put(CHECKSUM_MAGIC)
+            .array()
+    }
+
+    // CRC32C 有硬件指令加速, 仅 Android 8.0+ 支持, 之前的版本使用 CRC32
+    private fun createChecksum(algorithm: Byte): Checksum? = when {
+        algorithm == CHECKSUM_CRC32 -> CRC32()
+        algorithm == CHECKSUM_CRC32C && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O -> CRC32C()
+        else -> null
+    }
+
+    /**
+     * 重命名文件, 目标文件已存在时替换
+     * Android 8.0+ 优先使用原子移动, 不支持时(如跨文件系统)使用 [File.renameTo]
+     */
+    private fun moveReplacing(src: File, dest: File): Boolean {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             try {
-                inputStream = FileInputStream(srcFile)
-                os = FileOutputStream(dstFile)
-                val buffer = ByteArray(2048)
-                var readLen = inputStream.read(buffer)
-                while (readLen != -1) {
-                    os.write(buffer, 0, readLen)
-                    readLen = inputStream.read(buffer)
-                }
-                os.flush()
-                copyResult = true
+                Files.move(src.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+                return true
             } catch (e: Exception) {
-                e.printStackTrace()
-                copyResult = false
-            } finally {
-                inputStream.closeSafety()
-                os.closeSafety()
+                LoggerUtil.w(TAG, "atomic move fail, fallback to renameTo: ${e.message}")
             }
         }
-        return copyResult
+        return src.renameTo(dest)
     }
 
     /**
-     * 列出指定路径目录的所有子文件列表(只包含一级子文件, 按照文件修改时间递增/递减排序返回)
+     * 获取指定文件的追加写入工具 [FileAppender], 适用于频繁追加少量内容的场景
+     * 同一路径共用一个实例, 最多同时打开 [APPENDER_POOL_SIZE] 个文件, 超出时关闭最久未使用的文件(再次写入时自动重新打开)
+     * 被淘汰但未关闭且仍被引用的实例, 再次打开同一路径时仍返回该实例
+     * 已存在同路径实例时直接返回, 忽略本次传入的配置
      *
-     * @param folderPath 目录路径
-     * @param ascending  是否按照升序排列 true-升序  false-降序
+     * @param absPath 文件绝对路径
+     * @param bufferSize 缓冲区大小, 单位: 字符
+     * @param flushIntervalMs 自动刷新的间隔, 0表示每次写入后均刷新, 负数表示仅在缓冲区已满或手动刷新时写入文件, 单位: ms
+     * @param charset 写入内容的编码
+     * @return 路径无效或是目录时返回null
      */
-    fun listSubFiles(folderPath: String?, ascending: Boolean): Array<File> {
-        val files: Array<File> = listSubFiles(folderPath) // orderByModifiedTs
-        val len = files.size
-        if (len <= 1) {
-            return files
+    @JvmStatic
+    @JvmOverloads
+    fun openAppender(
+        absPath: String?,
+        bufferSize: Int = BUFFER_SIZE,
+        flushIntervalMs: Long = 1000L,
+        charset: Charset = Charsets.UTF_8
+    ): FileAppender? {
+        val tAbsPath = processPath(absPath)
+        if (tAbsPath.isBlank()) {
+            return null
+        }
+        val file = File(tAbsPath)
+        if (file.isDirectory) {
+            return null
+        }
+        val key = file.absolutePath
+        val evicted = mutableListOf<FileAppender>()
+        val appender = synchronized(appenderPool) {
+            // 被淘汰的实例在下次写入重新打开文件时再加入缓存池
+            appenderPool[key]
+                ?: evictedAppenders[key]?.get()?.takeIf { !it.isClosed }
+                ?: FileAppender(file, charset, bufferSize, flushIntervalMs).also {
+                    putAppenderLocked(key, it, evicted)
+                }
+        }
+        evicted.forEach { it.release() }
+        return appender
+    }
+
+    /**
+     * 将所有已打开的 [FileAppender] 缓存的内容写入文件
+     */
+    @JvmStatic
+    fun flushAppenders() {
+        synchronized(appenderPool) { appenderPool.values.toList() }.forEach { it.flush() }
+    }
+
+    /**
+     * 关闭所有已打开的 [FileAppender]
+     */
+    @JvmStatic
+    fun closeAppenders() {
+        synchronized(appenderPool) {
+            appenderPool.values.toList() + evictedAppenders.values.mapNotNull { it.get() }
+        }.forEach { it.close() }
+    }
+
+    // appender 重新打开文件后重新加入缓存池
+    internal fun onAppenderOpened(appender: FileAppender) {
+        val evicted = mutableListOf<FileAppender>()
+        synchronized(appenderPool) {
+            if (!appender.isClosed) {
+                putAppenderLocked(appender.file.absolutePath, appender, evicted)
+            }
         }
+        evicted.forEach { it.release() }
+    }
 
-        // 创建一个保存文件和时间戳的二维数组
-        val fileWithTS = Array(len) { arrayOf<Long>(2) }
-        for (i in 0 until len) {
-            fileWithTS[i][0] = i.toLong() // 保存原始索引
-            fileWithTS[i][1] = files[i].lastModified() // 保存时间戳
+    internal fun onAppenderClosed(appender: FileAppender) {
+        synchronized(appenderPool) {
+            val key = appender.file.absolutePath
+            if (appenderPool[key] === appender) {
+                appenderPool.remove(key)
+            }
+            if (evictedAppenders[key]?.get() === appender) {
+                evictedAppenders.remove(key)
+            }
         }
+    }
 
-        // 根据时间戳升序排序
-        if (ascending) {
-            Arrays.sort(fileWithTS, Comparator.comparingLong { o: Array<Long> -> o[1] })
-        } else { // 根据时间戳降序排序
-            Arrays.sort(fileWithTS) { o1: Array<Long>, o2: Array<Long> -> o2[1].compareTo(o1[1]) }
+    // 需持有 appenderPool 锁, 被淘汰的 appender 需在释放锁后再关闭文件, 避免与 appender 自身的锁死锁
+    private fun putAppenderLocked(key: String, appender: FileAppender, evicted: MutableList<FileAppender>) {
+        evictedAppenders.remove(key)
+        val previous = appenderPool.put(key, appender)
+        if (previous != null && previous !== appender) {
+            evicted.add(previous)
         }
+        if (appenderPool.size <= APPENDER_POOL_SIZE) {
+            return
+        }
+        evictedAppenders.values.removeAll { it.get() == null }
+        val iterator = appenderPool.entries.iterator()
+        while (appenderPool.size > APPENDER_POOL_SIZE) {
+            val entry = iterator.next()
+            evicted.add(entry.value)
+            evictedAppenders[entry.key] = WeakReference(entry.value)
+            iterator.remove()
+        }
+    }
 
-        // 重新排列文件数组
-        val sortedFiles = arrayOf<File>()
-        for (i in 0 until len) {
-            sortedFiles[i] = files[fileWithTS[i][0].toInt()]
+    /**
+     * 复制文件到指定位置, 参考 [FileCopier]
+     *
+     * @param fromPath 源文件路径,可以是目录
+     * @param toPath 目标位置, 以分隔符结尾时表示复制到该目录下的同名文件
+     * @param parallelism 复制目录时的并发数, 小于等于1表示串行复制
+     * @param preserveTimestamp 是否保留源文件的最后修改时间, 默认false
+     * @param listener 复制进度回调, 可空
+     * @return 复制成功或失败, 目录中任一文件复制失败均返回false
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun copy(
+        fromPath: String?,
+        toPath: String,
+        parallelism: Int = 1,
+        preserveTimestamp: Boolean = false,
+        listener: FileCopier.OnProgressListener? = null
+    ): Boolean {
+        val absPath = processPath(fromPath)
+        if (!isExist(absPath)) {
+            return false
         }
-        return sortedFiles
+
+        val sep = File.separator
+        val srcFile = File(absPath)
+        val dstPath = if (!srcFile.isDirectory && toPath.endsWith(sep)) "${toPath}${srcFile.name}" else toPath
+        return FileCopier(parallelism, preserveTimestamp, listener).copy(srcFile, File(dstPath))
+    }
+
+    /**
+     * 列出指定路径目录的所有子文件列表(只包含一级子文件, 按照文件修改时间递增/递减排序返回)
+     *
+     * @param folderPath 目录路径
+     * @param ascending  是否按照升序排列 true-升序  false-降序
+     */
+    fun listSubFiles(folderPath: String?, ascending: Boolean): Array<File> {
+        val absPath = processPath(folderPath)
+        if (absPath.isBlank()) {
+            return arrayOf()
+        }
+        // 遍历时读取修改时间, 排序时无需重复读取
+        val entries = FileWalker(File(absPath)).maxDepth(1).includeDirectories(true).list()
+        val sorted = if (ascending) entries.sortedBy { it.lastModified } else entries.sortedByDescending { it.lastModified }
+        return Array(sorted.size) { sorted[it].file }
     }
 
     /**
@@ -393,7 +760,7 @@ object FileUtil {
         val folder = File(absPath)
         val files = folder.listFiles() ?: emptyList
         if (files.isNotEmpty() && comparator != null) {
-            Arrays.sort(files, comparator)
+            files.sortWith(comparator)
         }
         return files
     }
@@ -498,14 +865,9 @@ object FileUtil {
         val file = File(abspath)
         if (isExist(abspath)) {
             ts[abspath] = file.lastModified()
-            if (getSubFileModifiedTime) { // 是否获取子文件时间
-                val files = file.listFiles() // 非目录时返回null
-                val length = files?.size ?: 0
-                if (length >= 1) {
-                    for (i in 0 until length) {
-                        val subFile = files!![i]
-                        ts[subFile.absolutePath] = subFile.lastModified()
-                    }
+            if (getSubFileModifiedTime) { // 是否获取子文件时间, 非目录时无子文件
+                FileWalker(file).maxDepth(1).includeDirectories(true).walk {
+                    ts[it.file.absolutePath] = it.lastModified
                 }
             }
         }
@@ -514,6 +876,7 @@ object FileUtil {
 
     /**
      * 从文件中读取满足指定条件的首行信息
+     * 流式读取, 找到后即停止, 反向读取时从文件末尾按块向前读取, 参考 [useLines], [useReversedLines]
      *
      * @param filePath      文件绝对路径
      * @param reverse       是否反向读取 true-从文件最后一行开始往前读取非空行
@@ -528,29 +891,17 @@ object FileUtil {
         skipEmptyLine: Boolean,
         defaultMsg: String?
     ): String? {
-        val allLInes = readAllLine(filePath)
-        val size = allLInes.size
-        if (size == 0) {
-            return defaultMsg
-        }
-        if (reverse) {
-            for (i in size - 1 downTo 0) {
-                val line = allLInes[i].trim { it <= ' ' }
-                if (skipEmptyLine && line.isEmpty()) {
-                    continue
-                }
-                return line
-            }
-        } else {
-            for (i in 0 until size) {
-                val line = allLInes[i].trim { it <= ' ' }
-                if (skipEmptyLine && line.isEmpty()) {
-                    continue
-                }
-                return line
-            }
+        val findFirst = { lines: Sequence<String> ->
+            lines.map { line -> line.trim { it <= ' ' } }
+                .firstOrNull { !skipEmptyLine || it.isNotEmpty() }
+        }
+        return try {
+            (if (reverse) useReversedLines(filePath, block = findFirst) else useLines(filePath, block = findFirst))
+                ?: defaultMsg
+        } catch (e: IOException) {
+            e.printStackTrace()
+            defaultMsg
         }
-        return defaultMsg
     }
 
     /**
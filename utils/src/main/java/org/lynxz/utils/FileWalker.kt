@@ -0,0 +1,358 @@
+package org.lynxz.utils
+
+import android.os.Build
+import java.io.File
+import java.io.IOException
+import java.nio.file.DirectoryIteratorException
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.RecursiveTask
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.regex.Pattern
+
+/**
+ * 目录遍历工具, 流式遍历指定目录下的子文件, 由 [FileUtil] 的目录列举, 删除等方法使用
+ * 1. 过滤条件: 文件名(通配符 [glob] 或正则 [regex]), 文件大小 [sizeBetween], 修改时间 [modifiedBetween], [olderThan], 遍历深度 [maxDepth]
+ *    过滤条件在遍历过程中按 文件名->大小->修改时间 的顺序依次判断, 文件属性仅在需要时读取
+ * 2. 遍历: [walk] 逐个回调满足条件的文件, [list] 返回满足条件的文件列表, [delete] 删除满足条件的文件
+ * 3. 并行: [parallelism] 大于1时, 各子目录在 ForkJoinPool 中并行遍历, 此时回调可能在多个线程中同时执行, 且不保证顺序
+ *
+ * Android 8.0+ 使用 DirectoryStream 遍历, 同时读取文件属性且不跟随符号链接; 之前的版本使用 [File.listFiles]
+ *
+ * <pre>
+ * // 删除 cache 目录下7天前的日志文件
+ * FileWalker(cacheDir).glob("*.log").olderThan(7 * 24 * 3600 * 1000L).parallelism(4).delete()
+ * </pre>
+ *
+ * @param root 待遍历的目录, 本身不参与过滤及回调
+ */
+class FileWalker(private val root: File) {
+
+    /**
+     * 遍历到的文件信息, 文件大小及修改时间在首次访问时读取(Android 8.0+ 遍历时已读取)
+     * @param depth 相对 root 的深度, root 的一级子文件为1
+     */
+    class Entry internal constructor(
+        val file: File,
+        val isDirectory: Boolean,
+        val depth: Int,
+        private var sizeValue: Long = UNKNOWN,
+        private var lastModifiedValue: Long = UNKNOWN
+    ) {
+        /**
+         * 文件字节大小, 目录为0
+         */
+        val size: Long
+            get() {
+                if (sizeValue == UNKNOWN) {
+                    sizeValue = if (isDirectory) 0 else file.length()
+                }
+                return sizeValue
+            }
+
+        /**
+         * 最后修改时间, 单位: ms
+         */
+        val lastModified: Long
+            get() {
+                if (lastModifiedValue == UNKNOWN) {
+                    lastModifiedValue = file.lastModified()
+                }
+                return lastModifiedValue
+            }
+
+        override fun toString() = file.absolutePath
+    }
+
+    /**
+     * 遍历过程中对满足条件的文件执行的操作
+     */
+    private interface Action {
+        /**
+         * 满足条件的文件/目录的子文件是否均视为满足条件, 如: 删除满足条件的目录时, 需删除其所有子文件
+         */
+        val inheritMatch: Boolean
+
+        fun visit(entry: Entry)
+
+        /**
+         * 目录的所有子文件遍历完成后回调
+         * @param matched 目录本身是否满足条件
+         */
+        fun postVisitDirectory(dir: File, matched: Boolean)
+    }
+
+    private var maxDepth = Int.MAX_VALUE
+    private var includeDirectories = false
+    private var namePattern: Pattern? = null
+    private var fullNameMatch = false
+    private var minSize = 0L
+    private var maxSize = Long.MAX_VALUE
+    private var modifiedAfter = Long.MIN_VALUE
+    private var modifiedBefore = Long.MAX_VALUE
+    private var parallelism = 1
+
+    /**
+     * 最大遍历深度, 1表示仅遍历一级子文件, 默认不限制
+     */
+    fun maxDepth(depth: Int) = apply { maxDepth = depth }
+
+    /**
+     * 目录是否参与过滤及回调, 默认false, 仅回调普通文件
+     * 目录仅判断文件名及修改时间条件
+     */
+    fun includeDirectories(include: Boolean) = apply { includeDirectories = include }
+
+    /**
+     * 按通配符匹配完整文件名(不含路径), 支持: * ? [abc] [!abc] {a,b}, 与 [regex] 互斥, 后设置的生效
+     */
+    @JvmOverloads
+    fun glob(glob: String, ignoreCase: Boolean = false) = apply {
+        namePattern = compile(globToRegex(glob), ignoreCase)
+        fullNameMatch = true
+    }
+
+    /**
+     * 按正则表达式匹配文件名(不含路径), 文件名包含匹配的内容即可(find), 与 [glob] 互斥, 后设置的生效
+     */
+    @JvmOverloads
+    fun regex(regex: String, ignoreCase: Boolean = false) = apply {
+        namePattern = compile(regex, ignoreCase)
+        fullNameMatch = false
+    }
+
+    /**
+     * 文件大小范围 [minSize, maxSize], 单位: 字节
+     */
+    fun sizeBetween(minSize: Long, maxSize: Long) = apply {
+        this.minSize = minSize
+        this.maxSize = maxSize
+    }
+
+    /**
+     * 最后修改时间范围 [startTs, endTs], 单位: ms
+     */
+    fun modifiedBetween(startTs: Long, endTs: Long) = apply {
+        modifiedAfter = startTs
+        modifiedBefore = endTs
+    }
+
+    /**
+     * 仅包含最后修改时间早于 ageMs 毫秒之前的文件
+     */
+    fun olderThan(ageMs: Long) = apply { modifiedBefore = System.currentTimeMillis() - ageMs }
+
+    /**
+     * 并行遍历的线程数, 小于等于1表示在调用线程中串行遍历
+     */
+    fun parallelism(parallelism: Int) = apply { this.parallelism = parallelism }
+
+    /**
+     * 遍历满足条件的文件, 目录先于其子文件回调
+     * @param visitor 并行遍历时需多线程安全
+     */
+    fun walk(visitor: (Entry) -> Unit) {
+        execute(object : Action {
+            override val inheritMatch = false
+            override fun visit(entry: Entry) = visitor(entry)
+            override fun postVisitDirectory(dir: File, matched: Boolean) {}
+        })
+    }
+
+    /**
+     * 获取满足条件的文件列表, 串行遍历时按遍历顺序排列
+     */
+    fun list(): List<Entry> {
+        val result = ConcurrentLinkedQueue<Entry>()
+        walk { result.add(it) }
+        return result.toList()
+    }
+
+    /**
+     * 删除满足条件的文件, 若目录满足条件(需 [includeDirectories]), 则删除该目录及其所有子文件
+     * root 本身不会被删除
+     *
+     * @return 是否全部删除成功
+     */
+    fun delete(): Boolean {
+        val success = AtomicBoolean(true)
+        execute(object : Action {
+            override val inheritMatch = true
+
+            override fun visit(entry: Entry) {
+                if (!entry.isDirectory && !entry.file.delete() && entry.file.exists()) {
+                    success.set(false)
+                }
+            }
+
+            override fun postVisitDirectory(dir: File, matched: Boolean) {
+                if (matched && !dir.delete() && dir.exists()) {
+                    success.set(false)
+                }
+            }
+        })
+        return success.get()
+    }
+
+    private fun execute(action: Action) {
+        if (!root.isDirectory) {
+            return
+        }
+        if (parallelism <= 1) {
+            walkDir(root, 0, false, action, false)
+            return
+        }
+        val pool = ForkJoinPool(parallelism)
+        try {
+            pool.invoke(DirTask(root, 0, false, action))
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    private inner class DirTask(
+        private val dir: File,
+        private val depth: Int,
+        private val dirMatched: Boolean,
+        private val action: Action
+    ) : RecursiveTask<Unit>() {
+        override fun compute() = walkDir(dir, depth, dirMatched, action, true)
+    }
+
+    /**
+     * 遍历目录的子文件
+     * @param dirMatched 目录本身是否满足条件
+     * @param forkSubDir 子目录是否 fork 为新任务并行遍历, 仅可在 ForkJoinPool 中使用
+     */
+    private fun walkDir(dir: File, depth: Int, dirMatched: Boolean, action: Action, forkSubDir: Boolean) {
+        val forceMatch = dirMatched && action.inheritMatch
+        val subTasks = if (forkSubDir) mutableListOf<DirTask>() else null
+        for (entry in listEntries(dir, depth + 1)) {
+            val matched = forceMatch || matches(entry)
+            if (matched) {
+                action.visit(entry)
+            }
+            if (!entry.isDirectory || (entry.depth >= maxDepth && !(matched && action.inheritMatch))) {
+                continue
+            }
+            if (subTasks != null) {
+                subTasks.add(DirTask(entry.file, entry.depth, matched, action))
+            } else {
+                walkDir(entry.file, entry.depth, matched, action, false)
+            }
+        }
+        if (!subTasks.isNullOrEmpty()) {
+            ForkJoinTask.invokeAll(subTasks) // 等待所有子目录遍历完成, 子任务异常时抛出
+        }
+        action.postVisitDirectory(dir, dirMatched)
+    }
+
+    private fun matches(entry: Entry): Boolean {
+        if (entry.isDirectory && !includeDirectories) {
+            return false
+        }
+        val pattern = namePattern
+        if (pattern != null) {
+            val matcher = pattern.matcher(entry.file.name)
+            if (!(if (fullNameMatch) matcher.matches() else matcher.find())) {
+                return false
+            }
+        }
+        if (!entry.isDirectory && (minSize > 0 || maxSize < Long.MAX_VALUE) && entry.size !in minSize..maxSize) {
+            return false
+        }
+        if ((modifiedAfter > Long.MIN_VALUE || modifiedBefore < Long.MAX_VALUE)
+            && entry.lastModified !in modifiedAfter..modifiedBefore
+        ) {
+            return false
+        }
+        return true
+    }
+
+    private fun listEntries(dir: File, depth: Int): List<Entry> {
+        val result = mutableListOf<Entry>()
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                Files.newDirectoryStream(dir.toPath()).use { stream ->
+                    for (path in stream) {
+                        val attrs = try {
+                            Files.readAttributes(path, BasicFileAttributes::class.java, LinkOption.NOFOLLOW_LINKS)
+                        } catch (e: IOException) { // 遍历过程中被删除等
+                            continue
+                        }
+                        result.add(
+                            Entry(
+                                path.toFile(),
+                                attrs.isDirectory,
+                                depth,
+                                if (attrs.isDirectory) 0 else attrs.size(),
+                                attrs.lastModifiedTime().toMillis()
+                            )
+                        )
+                    }
+                }
+            } catch (e: IOException) {
+                e.printStackTrace()
+            } catch (e: DirectoryIteratorException) { // 迭代过程中读取目录项失败, 跳过该目录剩余的目录项
+                e.printStackTrace()
+            }
+        } else {
+            dir.listFiles()?.forEach { result.add(Entry(it, it.isDirectory, depth)) }
+        }
+        return result
+    }
+
+    companion object {
+        private const val UNKNOWN = Long.MIN_VALUE
+
+        private fun compile(regex: String, ignoreCase: Boolean): Pattern =
+            if (ignoreCase) Pattern.compile(regex, Pattern.CASE_INSENSITIVE) else Pattern.compile(regex)
+
+        /**
+         * 将文件名通配符转换为正则表达式
+         */
+        @JvmStatic
+        fun globToRegex(glob: String): String {
+            val sb = StringBuilder()
+            var inGroup = false // 是否在 {} 中
+            var i = 0
+            while (i < glob.length) {
+                when (val c = glob[i]) {
+                    '*' -> sb.append(".*")
+                    '?' -> sb.append(".")
+                    '[' -> {
+                        val end = glob.indexOf(']', i + 1)
+                        if (end < 0) {
+                            sb.append("\\[")
+                        } else {
+                            var content = glob.substring(i + 1, end)
+                            if (content.startsWith("!")) {
+                                content = "^" + content.substring(1)
+                            }
+                            sb.append('[').append(content.replace("\\", "\\\\")).append(']')
+                            i = end
+                        }
+                    }
+                    '{' -> {
+                        inGroup = true
+                        sb.append("(?:")
+                    }
+                    '}' -> if (inGroup) {
+                        inGroup = false
+                        sb.append(')')
+                    } else {
+                        sb.append("\\}")
+                    }
+                    ',' -> sb.append(if (inGroup) "|" else ",")
+                    else -> if (Character.isLetterOrDigit(c)) sb.append(c) else sb.append('\\').append(c)
+                }
+                i++
+            }
+            return sb.toString()
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.lynxz.utils
+
+import java.io.Closeable
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.charset.Charset
+
+/**
+ * 从文件末尾开始逐行向前读取, 每次按块(blockSize)读取, 读取最后一行仅需读取文件末尾的一个块, 与文件大小无关
+ * 1. 行分隔符支持 \n 及 \r\n, 与 [File.readLines] 一致, 文件末尾的换行符不会产生空行
+ * 2. 仅支持 \n 不会出现在多字节字符中的编码, 如 UTF-8, GBK 等, 不支持 UTF-16
+ * 3. 使用完毕后需调用 [close], 推荐通过 [FileUtil.useReversedLines] 使用
+ *
+ * @param blockSize 每次读取的字节数
+ */
+class ReverseLineReader @JvmOverloads constructor(
+    file: File,
+    private val charset: Charset = Charsets.UTF_8,
+    blockSize: Int = 8 * 1024
+) : Iterator<String>, Closeable {
+
+    private val raf = RandomAccessFile(file, "r")
+    private val block = ByteArray(blockSize)
+
+    // 当前块在文件中的起始位置及长度, [0, blockStart) 为尚未读取的部分
+    private var blockStart: Long
+    private var blockLen = 0
+
+    // 下一个待检查的字节在块中的下标, 从后向前, 小于0表示需要读取前一个块
+    private var index = -1
+
+    // 当前行的结束位置(不含)
+    private var lineEnd: Long
+    private var finished = false
+    private var nextLine: String? = null
+
+    init {
+        var len = raf.length()
+        if (len == 0L) {
+            finished = true
+        } else {
+            // 文件末尾的换行符不产生空行
+            raf.seek(len - 1)
+            if (raf.read() == '\n'.code) {
+                len--
+            }
+        }
+        lineEnd = len
+        blockStart = len
+    }
+
+    override fun hasNext(): Boolean {
+        if (nextLine == null && !finished) {
+            nextLine = readPreviousLine()
+        }
+        return nextLine != null
+    }
+
+    override fun next(): String {
+        if (!hasNext()) {
+            throw NoSuchElementException()
+        }
+        val line = nextLine!!
+        nextLine = null
+        return line
+    }
+
+    override fun close() {
+        finished = true
+        raf.close()
+    }
+
+    private fun readPreviousLine(): String? {
+        while (true) {
+            if (index < 0) {
+                if (blockStart == 0L) { // 已到达文件开头, 剩余内容即为第一行
+                    finished = true
+                    return decode(0L, lineEnd)
+                }
+                blockLen = minOf(block.size.toLong(), blockStart).toInt()
+                blockStart -= blockLen
+                raf.seek(blockStart)
+                raf.readFully(block, 0, blockLen)
+                index = blockLen - 1
+            }
+            val pos = blockStart + index
+            if (block[index--] == '\n'.code.toByte()) {
+                val line = decode(pos + 1, lineEnd)
+                lineEnd = pos
+                return line
+            }
+        }
+    }
+
+    // 解码 [start, end) 之间的内容, 并去除行尾的 \r
+    private fun decode(start: Long, end: Long): String {
+        val len = (end - start).toInt()
+        val bytes = if (start >= blockStart && end <= blockStart + blockLen) {
+            block.copyOfRange((start - blockStart).toInt(), (end - blockStart).toInt())
+        } else { // 跨越多个块
+            ByteArray(len).also {
+                raf.seek(start)
+                raf.readFully(it)
+            }
+        }
+        val size = if (len > 0 && bytes[len - 1] == '\r'.code.toByte()) len - 1 else len
+        return String(bytes, 0, size, charset)
+    }
+}
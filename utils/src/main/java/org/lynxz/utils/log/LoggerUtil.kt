@@ -7,6 +7,7 @@ import org.json.JSONObject
 import org.lynxz.utils.log.LoggerUtil.getLogPersistenceImpl
 import org.lynxz.utils.log.LoggerUtil.init
 import org.lynxz.utils.log.LoggerUtil.updateLogCacheSize
+import java.util.concurrent.CopyOnWriteArrayList
 
 
 /**
@@ -20,6 +21,7 @@ import org.lynxz.utils.log.LoggerUtil.updateLogCacheSize
  * 1. 指定tag: LoggerUtil.i(tag,msg)
  * 2. 通用tag: LoggerUtil.i(msg)
  * 3. 获取当前使用的持久化工具类: [getLogPersistenceImpl]
+ * 4. 监听所有已打印的日志: [addLogListener]
  */
 object LoggerUtil {
     private var lTag = "default_logger" // 默认tag
@@ -36,6 +38,15 @@ object LoggerUtil {
         val msg: String
     )
 
+    /**
+     * 日志监听器, 在打印日志的线程中回调, 仅回调满足 [logLevel] 的日志
+     */
+    interface ILogListener {
+        fun onLog(@LogLevel.LogLevel1 logLevel: Int, tag: String, msg: String)
+    }
+
+    private val logListeners = CopyOnWriteArrayList<ILogListener>()
+
     // 初始化 logPersistenceImpl 前缓存的日志条数, 负数或0表示不不缓存
     private var cacheSize = 0
     private val cacheList: MutableList<LogMessage> = mutableListOf()
@@ -54,6 +65,21 @@ object LoggerUtil {
         return this
     }
 
+    /**
+     * 添加日志监听器, 如: 统计测试过程中产生的新日志
+     */
+    @JvmStatic
+    fun addLogListener(listener: ILogListener): LoggerUtil {
+        logListeners.addIfAbsent(listener)
+        return this
+    }
+
+    @JvmStatic
+    fun removeLogListener(listener: ILogListener): LoggerUtil {
+        logListeners.remove(listener)
+        return this
+    }
+
     /**
      * 初始化, 指定日志等级和默认tag以及持久化工具类
      */
@@ -230,6 +256,9 @@ object LoggerUtil {
         msg: String?,
         keepFormat: Boolean = false
     ) {
+        if (msg != null) {
+            logListeners.forEach { it.onLog(logLevel, tag, msg) }
+        }
         logPersistenceImpl?.filterPersistenceLog(logLevel, tag, msg, keepFormat)
         if (logPersistenceImpl == null && cacheSize > 0 && logLevel >= cacheLogMinLevel && !msg.isNullOrBlank()) {
             synchronized(LoggerUtil::class.java) {
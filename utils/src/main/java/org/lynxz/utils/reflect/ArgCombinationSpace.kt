@@ -0,0 +1,121 @@
+package org.lynxz.utils.reflect
+
+import java.util.*
+
+/**
+ * 形参值组合空间, 由 [FunTraverseUtil] 使用
+ * 不预先生成所有组合, 而是将组合序号按混合进制解码为对应的一组实参, 组合顺序与笛卡尔积一致(最后一个形参变化最快):
+ * 如形参1候选值为[a,b], 形参2候选值为[x,y,z], 则序号0~5依次对应: ax,ay,az,bx,by,bz
+ *
+ * @param candidates 各形参的候选值列表, 每个形参至少需要一个候选值
+ */
+class ArgCombinationSpace(private val candidates: List<Array<Any?>>) {
+
+    // 各形参的候选值个数, 即各位的进制
+    private val radixes = IntArray(candidates.size) { candidates[it].size }
+
+    /**
+     * 形参个数
+     */
+    val arity = candidates.size
+
+    /**
+     * 组合总数, 超过 Int.MAX_VALUE 时仅能访问前 Int.MAX_VALUE 个组合
+     */
+    val size: Int
+
+    init {
+        require(radixes.all { it > 0 }) { "every parameter should have at least one candidate" }
+        var total = if (arity == 0) 0L else 1L
+        for (radix in radixes) {
+            total *= radix
+            if (total >= Int.MAX_VALUE) {
+                total = Int.MAX_VALUE.toLong()
+                break
+            }
+        }
+        size = total.toInt()
+    }
+
+    /**
+     * 获取指定形参的候选值个数
+     */
+    fun getRadix(paramIndex: Int) = radixes[paramIndex]
+
+    /**
+     * 获取指定形参的第 valueIndex 个候选值
+     */
+    fun getCandidate(paramIndex: Int, valueIndex: Int) = candidates[paramIndex][valueIndex]
+
+    /**
+     * 获取指定序号的实参组合, 每次返回新数组, 耗时与形参个数成正比
+     */
+    operator fun get(index: Int): Array<Any?> {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("index=$index, size=$size")
+        }
+        val result = arrayOfNulls<Any?>(arity)
+        var remain = index
+        for (i in arity - 1 downTo 0) {
+            result[i] = candidates[i][remain % radixes[i]]
+            remain /= radixes[i]
+        }
+        return result
+    }
+
+    /**
+     * 将组合序号解码为各形参的候选值序号, 与 [indexOf] 互逆
+     */
+    fun valueIndexesOf(index: Int): IntArray {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("index=$index, size=$size")
+        }
+        val result = IntArray(arity)
+        var remain = index
+        for (i in arity - 1 downTo 0) {
+            result[i] = remain % radixes[i]
+            remain /= radixes[i]
+        }
+        return result
+    }
+
+    /**
+     * 将各形参的候选值序号编码为组合序号, 与 [get] 互逆
+     * @return 超出可访问范围时返回-1
+     */
+    fun indexOf(valueIndexes: IntArray): Int {
+        var index = 0L
+        for (i in 0 until arity) {
+            index = index * radixes[i] + valueIndexes[i]
+            if (index >= size) {
+                return -1
+            }
+        }
+        return index.toInt()
+    }
+
+    /**
+     * 随机抽取不重复的组合序号, 无需生成所有组合
+     *
+     * @param count 抽取个数, 负数或不小于 [size] 时返回所有序号(乱序)
+     * @param random 随机数生成器
+     */
+    @JvmOverloads
+    fun sampleIndexes(count: Int, random: Random = Random()): MutableList<Int> {
+        if (count < 0 || count >= size) {
+            val all = MutableList(size) { it }
+            all.shuffle(random)
+            return all
+        }
+
+        // Floyd 算法: 从 [0,size) 中抽取 count 个不重复的数, 耗时仅与 count 相关
+        val selected = LinkedHashSet<Int>(count * 2)
+        for (j in size - count until size) {
+            val t = random.nextInt(j + 1)
+            selected.add(if (selected.contains(t)) j else t)
+        }
+        val result = selected.toMutableList()
+        result.shuffle(random)
+        return result
+    }
+}
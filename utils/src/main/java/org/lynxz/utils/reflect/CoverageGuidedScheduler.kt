@@ -0,0 +1,126 @@
+package org.lynxz.utils.reflect
+
+import java.util.*
+
+/**
+ * 反馈驱动的方法调度器, 由 [FunTraverseUtil.setCoverageGuided] 使用
+ * 每次执行后根据执行结果中新出现的特征(异常类型, 返回值, 日志等)为方法及实参组合计分, 剩余执行次数优先分配给产出新特征较多的方法:
+ * 1. 方法选择: UCB1 算法, 未执行过的方法优先, 之后按 平均收益 + 探索加成 选取
+ * 2. 实参组合选择: 以一定概率在产出过新特征的实参组合基础上修改单个形参的值, 否则随机选取未执行过的组合
+ *
+ * @param arms 各方法信息, 下标与调用方的方法列表一致
+ */
+internal class CoverageGuidedScheduler(private val arms: List<Arm>, private val random: Random = Random()) {
+
+    /**
+     * 单个方法的调度信息
+     * @param signature 方法签名
+     * @param argSpace 形参值组合空间, 无形参时为null
+     */
+    class Arm(val signature: String, val argSpace: ArgCombinationSpace?) {
+        internal var invokeCount = 0
+        internal var reward = 0.0
+        internal val triedIndexes = HashSet<Int>()
+        internal val productiveIndexes = ArrayList<Int>() // 产出过新特征的实参组合序号
+    }
+
+    /**
+     * 调度结果
+     * @param armIndex 方法下标
+     * @param argGroupIndex 实参组合序号, 无形参时为-1
+     */
+    data class Pick(val armIndex: Int, val argGroupIndex: Int)
+
+    // 已出现过的特征
+    private val features = HashSet<String>()
+    private var totalCount = 0
+
+    /**
+     * 已出现过的特征数
+     */
+    val featureCount: Int
+        get() = features.size
+
+    /**
+     * 选取下一个待执行的方法及实参组合
+     */
+    fun next(): Pick {
+        var best = 0
+        var bestScore = Double.NEGATIVE_INFINITY
+        for (i in arms.indices) {
+            val arm = arms[i]
+            if (arm.invokeCount == 0) {
+                best = i
+                break
+            }
+            val score = arm.reward / arm.invokeCount +
+                    EXPLORATION * Math.sqrt(Math.log(totalCount.toDouble()) / arm.invokeCount)
+            if (score > bestScore) {
+                bestScore = score
+                best = i
+            }
+        }
+        return Pick(best, nextArgGroupIndex(arms[best]))
+    }
+
+    /**
+     * 反馈执行结果
+     * @param outcomeFeatures 本次执行结果的特征, 如异常类型, 返回值等
+     * @return 新出现的特征数
+     */
+    fun feedback(pick: Pick, outcomeFeatures: Collection<String>): Int {
+        val novel = outcomeFeatures.count { features.add(it) }
+        val arm = arms[pick.armIndex]
+        arm.invokeCount++
+        totalCount++
+        if (novel > 0) {
+            arm.reward += 1.0
+            if (pick.argGroupIndex >= 0 && arm.productiveIndexes.size < MAX_PRODUCTIVE_SIZE) {
+                arm.productiveIndexes.add(pick.argGroupIndex)
+            }
+        }
+        return novel
+    }
+
+    private fun nextArgGroupIndex(arm: Arm): Int {
+        val space = arm.argSpace ?: return -1
+        val index = if (arm.productiveIndexes.isNotEmpty() && random.nextDouble() < MUTATE_PROBABILITY) {
+            mutate(space, arm.productiveIndexes[random.nextInt(arm.productiveIndexes.size)])
+        } else {
+            randomUntried(arm, space)
+        }
+        arm.triedIndexes.add(index)
+        return index
+    }
+
+    // 修改单个形参的候选值
+    private fun mutate(space: ArgCombinationSpace, index: Int): Int {
+        val valueIndexes = space.valueIndexesOf(index)
+        val param = random.nextInt(space.arity)
+        val radix = space.getRadix(param)
+        if (radix > 1) {
+            valueIndexes[param] = (valueIndexes[param] + 1 + random.nextInt(radix - 1)) % radix
+        }
+        val result = space.indexOf(valueIndexes)
+        return if (result >= 0) result else index
+    }
+
+    // 随机选取未执行过的组合, 均已执行过时随机选取
+    private fun randomUntried(arm: Arm, space: ArgCombinationSpace): Int {
+        var index = random.nextInt(space.size)
+        if (arm.triedIndexes.size < space.size) {
+            var attempt = 0
+            while (arm.triedIndexes.contains(index) && attempt++ < MAX_RANDOM_ATTEMPT) {
+                index = random.nextInt(space.size)
+            }
+        }
+        return index
+    }
+
+    companion object {
+        private const val EXPLORATION = 1.0 // UCB1 探索系数
+        private const val MUTATE_PROBABILITY = 0.5
+        private const val MAX_PRODUCTIVE_SIZE = 32
+        private const val MAX_RANDOM_ATTEMPT = 16
+    }
+}
@@ -0,0 +1,153 @@
+package org.lynxz.utils.reflect
+
+import java.util.*
+
+/**
+ * t-wise 覆盖数组生成器, 由 [FunTraverseUtil] 使用
+ * 对于任意 t 个形参, 其候选值的所有组合都至少出现在某一行中, 行数远小于全部组合数(笛卡尔积)
+ * 如 t=2(pairwise) 时, 10个形参各3个候选值, 全部组合为 59049 个, 覆盖数组通常仅需15~20行
+ * 使用 AETG 类贪心算法: 每次生成若干候选行, 选取新覆盖组合最多的一行, 直到所有 t 元组合均被覆盖
+ */
+object CoveringArrayGenerator {
+    // 每轮生成的候选行数, 越大结果行数越少, 耗时越长
+    private const val CANDIDATE_COUNT = 20
+
+    /**
+     * 生成覆盖数组
+     *
+     * @param radixes 各形参的候选值个数, 需均大于0
+     * @param strength 覆盖强度t, 如2表示pairwise, 不小于形参个数时等同于全部组合
+     * @param random 随机数生成器, 相同种子生成相同结果
+     * @return 每行表示一组实参, 元素为各形参的候选值序号
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun generate(radixes: IntArray, strength: Int, random: Random = Random()): List<IntArray> {
+        val n = radixes.size
+        if (n == 0 || strength <= 0) {
+            return emptyList()
+        }
+        val t = minOf(strength, n)
+
+        // 所有 t 个形参的组合, 及其对应的未覆盖候选值组合(bit位为1表示未覆盖)
+        val paramCombos = generateParamCombos(n, t)
+        val uncovered = paramCombos.map { combo ->
+            val size = combo.fold(1) { acc, p -> acc * radixes[p] }
+            BitSet(size).apply { set(0, size) }
+        }
+        var uncoveredCount = uncovered.sumOf { it.cardinality() }
+
+        // 包含各形参的组合序号
+        val combosOfParam = Array(n) { p -> paramCombos.indices.filter { paramCombos[it].contains(p) } }
+
+        val result = mutableListOf<IntArray>()
+        while (uncoveredCount > 0) {
+            var bestRow: IntArray? = null
+            var bestGain = 0
+            repeat(CANDIDATE_COUNT) {
+                val row = generateCandidateRow(radixes, paramCombos, uncovered, combosOfParam, random)
+                val gain = paramCombos.indices.count { uncovered[it].get(tupleIndex(paramCombos[it], row, radixes)) }
+                if (gain > bestGain) {
+                    bestGain = gain
+                    bestRow = row
+                }
+            }
+            val row = bestRow ?: break // 不会发生: 候选行至少覆盖一个种子组合
+            paramCombos.indices.forEach {
+                val index = tupleIndex(paramCombos[it], row, radixes)
+                if (uncovered[it].get(index)) {
+                    uncovered[it].clear(index)
+                    uncoveredCount--
+                }
+            }
+            result.add(row)
+        }
+        return result
+    }
+
+    /**
+     * 生成一行候选实参: 先用一个未覆盖的 t 元组合作为种子, 其余形参按随机顺序逐个选取新覆盖组合最多的候选值
+     */
+    private fun generateCandidateRow(
+        radixes: IntArray,
+        paramCombos: List<IntArray>,
+        uncovered: List<BitSet>,
+        combosOfParam: Array<List<Int>>,
+        random: Random
+    ): IntArray {
+        val n = radixes.size
+        val row = IntArray(n) { -1 }
+
+        // 随机选取一个仍有未覆盖组合的形参组合作为种子
+        val offset = random.nextInt(paramCombos.size)
+        for (i in paramCombos.indices) {
+            val comboIndex = (offset + i) % paramCombos.size
+            val bits = uncovered[comboIndex]
+            if (bits.isEmpty) {
+                continue
+            }
+            var tuple = bits.nextSetBit(random.nextInt(bits.size()))
+            if (tuple < 0) {
+                tuple = bits.nextSetBit(0)
+            }
+            val combo = paramCombos[comboIndex]
+            for (j in combo.indices.reversed()) {
+                row[combo[j]] = tuple % radixes[combo[j]]
+                tuple /= radixes[combo[j]]
+            }
+            break
+        }
+
+        val pendingParams = (0 until n).filter { row[it] < 0 }.toMutableList()
+        pendingParams.shuffle(random)
+        for (p in pendingParams) {
+            var bestValue = random.nextInt(radixes[p])
+            var bestGain = -1
+            val start = random.nextInt(radixes[p])
+            for (k in 0 until radixes[p]) {
+                val v = (start + k) % radixes[p]
+                row[p] = v
+                // 仅统计其他形参均已确定的组合
+                val gain = combosOfParam[p].count { comboIndex ->
+                    val combo = paramCombos[comboIndex]
+                    combo.all { row[it] >= 0 } && uncovered[comboIndex].get(tupleIndex(combo, row, radixes))
+                }
+                if (gain > bestGain) {
+                    bestGain = gain
+                    bestValue = v
+                }
+            }
+            row[p] = bestValue
+        }
+        return row
+    }
+
+    // 获取行在指定形参组合上的候选值组合序号
+    private fun tupleIndex(combo: IntArray, row: IntArray, radixes: IntArray): Int {
+        var index = 0
+        for (p in combo) {
+            index = index * radixes[p] + row[p]
+        }
+        return index
+    }
+
+    // 生成 [0,n) 中所有 t 个元素的组合, 按字典序
+    private fun generateParamCombos(n: Int, t: Int): List<IntArray> {
+        val result = mutableListOf<IntArray>()
+        val combo = IntArray(t) { it }
+        while (true) {
+            result.add(combo.copyOf())
+            var i = t - 1
+            while (i >= 0 && combo[i] == n - t + i) {
+                i--
+            }
+            if (i < 0) {
+                return result
+            }
+            combo[i]++
+            for (j in i + 1 until t) {
+                combo[j] = combo[j - 1] + 1
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.lynxz.utils.reflect
+
+import org.lynxz.utils.FileUtil
+import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * [FunTraverseUtil] 异常去重工具, 按异常堆栈特征分类(bucket), 相同原因的异常只需分析一次
+ * 1. 分类key: [getBucketKey], 使用根异常类型 + 栈顶若干帧(类名#方法名, 不含行号, 反射调用帧及 FunTraverse 工具之后的帧)计算hash
+ * 2. 记录异常: [add], 每个分类保留首次出现的异常及其调用序列作为样本
+ * 3. 导出报告: [generateReport], [exportReport]
+ */
+class FunTraverseCrashBuckets {
+
+    /**
+     * 单个异常分类
+     * @param key 分类key
+     * @param sample 首次出现的异常
+     * @param steps 首次出现时的调用序列, 可为空, 可通过 [FunTraverseMinimizer] 精简
+     */
+    class Bucket(val key: String, val sample: Throwable, val steps: List<FunTraverseMinimizer.Step>?) {
+        internal val count = AtomicInteger(0)
+
+        /**
+         * 该分类异常出现的次数
+         */
+        fun count() = count.get()
+    }
+
+    private val bucketMap = LinkedHashMap<String, Bucket>()
+
+    /**
+     * 记录一次异常, 多线程安全
+     *
+     * @param throwable 方法执行异常, 会自动查找根异常
+     * @param steps 导致异常的调用序列, 可空
+     * @return 异常所属的分类
+     */
+    @JvmOverloads
+    fun add(throwable: Throwable, steps: List<FunTraverseMinimizer.Step>? = null): Bucket {
+        val key = getBucketKey(throwable)
+        val bucket = synchronized(bucketMap) {
+            bucketMap.getOrPut(key) { Bucket(key, throwable, steps) }
+        }
+        bucket.count.incrementAndGet()
+        return bucket
+    }
+
+    /**
+     * 获取所有分类, 按出现次数降序排序
+     */
+    fun getBuckets(): List<Bucket> = synchronized(bucketMap) { bucketMap.values.toList() }
+        .sortedByDescending { it.count() }
+
+    /**
+     * 生成文本报告: 每个分类的key, 出现次数, 根异常信息, 栈顶帧及调用序列长度
+     */
+    fun generateReport(): String {
+        val sb = StringBuilder()
+        sb.append("== crash buckets(key\tcount\texception\tsteps) ==\n")
+        getBuckets().forEach { bucket ->
+            val root = getRootCause(bucket.sample)
+            sb.append(bucket.key)
+                .append("\t").append(bucket.count())
+                .append("\t").append(root)
+                .append("\t").append(bucket.steps?.size ?: -1)
+                .append("\n")
+            getSignificantFrames(root, MAX_FRAMES).forEach { sb.append("\tat ").append(it).append("\n") }
+        }
+        return sb.toString()
+    }
+
+    /**
+     * 导出报告到文件
+     * @param absFilePath 文件绝对路径
+     * @return 是否写入成功
+     */
+    fun exportReport(absFilePath: String) = FileUtil.writeToFile(generateReport(), absFilePath)
+
+    companion object {
+        private const val MAX_FRAMES = 8
+
+        // 反射调用的堆栈帧, 不参与分类
+        private val IGNORE_FRAME_PREFIXES = arrayOf(
+            "java.lang.reflect.",
+            "sun.reflect.",
+            "jdk.internal.reflect.",
+            "dalvik.system."
+        )
+
+        // 遍历工具本身的类(含内部类及lambda), 其后的帧(调用方所在线程, 串行/并行执行等)不参与分类
+        private val HARNESS_CLASS_NAMES = arrayOf(
+            FunTraverseUtil::class.java.name,
+            FunTraverseMinimizer::class.java.name
+        )
+
+        /**
+         * 计算异常的分类key
+         * 使用根异常类型及栈顶 maxFrames 个有效帧(类名#方法名), 不含异常信息及行号, 避免同一原因的异常因参数值或代码行变动被分到不同类
+         *
+         * @param throwable 异常, 会自动查找根异常(如 InvocationTargetException 包装的异常)
+         * @param maxFrames 参与计算的最大帧数
+         * @return 16位十六进制字符串
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun getBucketKey(throwable: Throwable, maxFrames: Int = MAX_FRAMES): String {
+            val root = getRootCause(throwable)
+            val sb = StringBuilder(root.javaClass.name)
+            getSignificantFrames(root, maxFrames).forEach {
+                sb.append("|").append(it.className).append("#").append(it.methodName)
+            }
+
+            // FNV-1a 64位 hash
+            var hash = -0x340d631b7bdddcdbL
+            for (c in sb) {
+                hash = (hash xor c.code.toLong()) * 0x100000001b3L
+            }
+            return String.format(Locale.CHINA, "%016x", hash)
+        }
+
+        private fun getRootCause(throwable: Throwable): Throwable {
+            var root = throwable
+            while (true) {
+                root = root.cause?.takeIf { it !== root } ?: return root
+            }
+        }
+
+        private fun getSignificantFrames(throwable: Throwable, maxFrames: Int) =
+            throwable.stackTrace.asSequence()
+                .takeWhile { frame ->
+                    HARNESS_CLASS_NAMES.none { frame.className == it || frame.className.startsWith("$it$") }
+                }
+                .filter { frame -> IGNORE_FRAME_PREFIXES.none { frame.className.startsWith(it) } }
+                .take(maxFrames)
+                .toList()
+    }
+}
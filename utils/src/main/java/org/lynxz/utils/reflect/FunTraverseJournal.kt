@@ -0,0 +1,188 @@
+package org.lynxz.utils.reflect
+
+import java.io.*
+
+/**
+ * 方法调用记录日志(只追加的二进制文件), 由 [FunTraversePersistenceUtil] 使用
+ * 打开后保持同一个输出流, 每条记录写入耗时与已有记录数无关, 适合长时间 fuzz 测试时逐次记录
+ * 1. 写入: [append], 同一方法签名仅在首次出现时写入一次, 后续记录仅写入其编号
+ * 2. 读取: [forEachRecord], 逐条流式读取, 文件末尾不完整的记录(如写入过程中进程崩溃)会被忽略
+ *
+ * 记录格式(大端序), 首字节为记录类型:
+ * - [TYPE_SIGNATURE]: 签名编号(int) + 方法签名(writeUTF, 2字节长度前缀)
+ * - [TYPE_INVOKE]: 签名编号(int) + 实参组合序号(int) + 状态(byte), 参考 [STATUS_STARTED] 等
+ *
+ * @param path 日志文件绝对路径
+ * @param flushInterval 每写入多少条调用记录 flush 一次, 为1时每条记录均立即写入系统缓存, 进程崩溃也不会丢失
+ * @param bufferSize 写入缓冲区大小, 单位:byte
+ */
+class FunTraverseJournal @JvmOverloads constructor(
+    private val path: String,
+    private val flushInterval: Int = 1,
+    private val bufferSize: Int = 8 * 1024
+) : Closeable {
+
+    /**
+     * 单条调用记录
+     * @param signature 方法签名
+     * @param argGroupIndex 实参组合序号, -1表示无形参
+     * @param status 调用状态, 参考 [STATUS_STARTED] 等
+     */
+    data class Record(val signature: String, val argGroupIndex: Int, val status: Int)
+
+    private var output: DataOutputStream? = null
+
+    // 方法签名 -> 签名编号, 打开文件时根据已有记录重建
+    private val signatureIdMap = HashMap<String, Int>()
+
+    // 尚未 flush 的调用记录数
+    private var pendingCount = 0
+
+    /**
+     * 追加一条调用记录, 多线程安全
+     */
+    @JvmOverloads
+    @Synchronized
+    fun append(signature: String, argGroupIndex: Int, status: Int = STATUS_STARTED) {
+        val out = output ?: open()
+        var id = signatureIdMap[signature]
+        if (id == null) {
+            id = signatureIdMap.size
+            signatureIdMap[signature] = id
+            out.writeByte(TYPE_SIGNATURE)
+            out.writeInt(id)
+            out.writeUTF(signature)
+        }
+        out.writeByte(TYPE_INVOKE)
+        out.writeInt(id)
+        out.writeInt(argGroupIndex)
+        out.writeByte(status)
+        if (++pendingCount >= flushInterval) {
+            flush()
+        }
+    }
+
+    /**
+     * 将缓冲区中的记录写入文件
+     */
+    @Synchronized
+    fun flush() {
+        output?.flush()
+        pendingCount = 0
+    }
+
+    /**
+     * 写入剩余记录并关闭文件, 之后再次调用 [append] 时会重新打开文件(文件已被删除时重新创建)
+     */
+    @Synchronized
+    override fun close() {
+        try {
+            output?.close()
+        } catch (e: IOException) {
+            e.printStackTrace()
+        }
+        output = null
+        pendingCount = 0
+        signatureIdMap.clear()
+    }
+
+    private fun open(): DataOutputStream {
+        val file = File(path)
+        file.parentFile?.mkdirs()
+
+        // 根据已有记录重建签名编号, 并截断末尾不完整的记录, 避免追加的记录无法被读取
+        val validLength = read(path) { _ -> }
+            .also { signatureIdMap.putAll(it.signatureIdMap) }
+            .validLength
+        if (file.exists() && file.length() > validLength) {
+            RandomAccessFile(file, "rw").use { it.setLength(validLength) }
+        }
+
+        val out = DataOutputStream(BufferedOutputStream(FileOutputStream(file, true), bufferSize))
+        output = out
+        return out
+    }
+
+    /**
+     * 读取结果
+     * @param validLength 完整记录的总长度, 单位:byte
+     */
+    private class ReadResult(val signatureIdMap: Map<String, Int>, val validLength: Long)
+
+    companion object {
+        private const val TYPE_SIGNATURE = 1
+        private const val TYPE_INVOKE = 2
+
+        const val STATUS_STARTED = 0 // 方法即将执行
+        const val STATUS_SUCCESS = 1 // 方法执行完成
+        const val STATUS_FAILED = 2 // 方法执行异常
+
+        /**
+         * 按写入顺序逐条读取调用记录, 文件不存在时不回调
+         *
+         * @param path 日志文件绝对路径
+         * @param consumer 每读取一条调用记录回调一次
+         */
+        @JvmStatic
+        fun forEachRecord(path: String, consumer: (Record) -> Unit) {
+            read(path, consumer)
+        }
+
+        private fun read(path: String, consumer: (Record) -> Unit): ReadResult {
+            val file = File(path)
+            val signatureIdMap = HashMap<String, Int>()
+            if (!file.exists()) {
+                return ReadResult(signatureIdMap, 0L)
+            }
+
+            val signatures = ArrayList<String>()
+            var validLength = 0L
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                try {
+                    while (true) {
+                        when (input.readUnsignedByte()) {
+                            TYPE_SIGNATURE -> {
+                                val id = input.readInt()
+                                val signature = input.readUTF()
+                                // 编号按出现顺序递增, 与 signatures 下标一致
+                                if (id != signatures.size) {
+                                    break
+                                }
+                                signatures.add(signature)
+                                signatureIdMap[signature] = id
+                                validLength += 1 + 4 + 2 + utfLength(signature)
+                            }
+                            TYPE_INVOKE -> {
+                                val id = input.readInt()
+                                val argGroupIndex = input.readInt()
+                                val status = input.readUnsignedByte()
+                                if (id !in signatures.indices) {
+                                    break
+                                }
+                                validLength += 1 + 4 + 4 + 1
+                                consumer(Record(signatures[id], argGroupIndex, status))
+                            }
+                            else -> break // 数据损坏, 忽略后续内容
+                        }
+                    }
+                } catch (ignore: EOFException) { // 已读取完毕, 或末尾记录不完整
+                } catch (ignore: UTFDataFormatException) {
+                }
+            }
+            return ReadResult(signatureIdMap, validLength)
+        }
+
+        // writeUTF 写入的字节数(不含2字节长度前缀)
+        private fun utfLength(str: String): Int {
+            var len = 0
+            for (c in str) {
+                len += when {
+                    c.code in 0x0001..0x007F -> 1
+                    c.code > 0x07FF -> 3
+                    else -> 2
+                }
+            }
+            return len
+        }
+    }
+}
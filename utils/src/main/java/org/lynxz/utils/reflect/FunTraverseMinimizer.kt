@@ -0,0 +1,165 @@
+package org.lynxz.utils.reflect
+
+import org.lynxz.utils.log.LoggerUtil
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * [FunTraverseUtil] 异常调用序列精简工具
+ * 对记录的调用序列(方法签名 + 实参组合序号)使用 delta debugging(ddmin) 算法, 查找仍能复现相同异常的最短子序列
+ * 1. 加载调用序列: [loadSteps], 读取 [FunTraversePersistenceUtil] 记录的日志
+ * 2. 精简: [minimize], 每轮的多个候选子序列分别使用独立的待测对象并行回放
+ * 3. 异常是否相同根据 [FunTraverseCrashBuckets.getBucketKey] 判断, 避免精简为其他异常的序列
+ *
+ * P.S. 仅能精简抛出 java 异常的序列, 导致进程崩溃(如 native crash)的序列需通过 [FunTraversePersistenceUtil] 分进程回放
+ *
+ * <pre>
+ * val steps = FunTraverseMinimizer.loadSteps(journalPath)
+ * val traverseUtil = FunTraverseUtil.create(SomeBean()).enableDefaultMultiArtTypeValues() // 形参候选值需与记录时一致
+ * val result = FunTraverseMinimizer(traverseUtil, { SomeBean() }, 4).minimize(steps)
+ * </pre>
+ *
+ * @param traverseUtil 用于回放, 形参候选值配置需与记录时一致
+ * @param targetFactory 每次回放均创建新的待测对象, 避免回放间相互影响
+ * @param parallelism 并行回放的线程数, 小于等于1表示串行
+ */
+class FunTraverseMinimizer<T> @JvmOverloads constructor(
+    private val traverseUtil: FunTraverseUtil<T>,
+    private val targetFactory: () -> T,
+    private val parallelism: Int = 1
+) {
+
+    /**
+     * 单次调用
+     * @param signature 方法签名, 参考 [FunTraverseUtil.getMethodSignature]
+     * @param argGroupIndex 实参组合序号, -1表示无形参
+     */
+    data class Step(val signature: String, val argGroupIndex: Int)
+
+    /**
+     * 回放异常信息
+     * @param stepIndex 异常的调用在序列中的下标
+     * @param throwable 方法抛出的异常
+     */
+    class Failure(val stepIndex: Int, val throwable: Throwable)
+
+    /**
+     * 精简结果
+     * @param steps 精简后的调用序列, 原序列未复现异常时为原序列
+     * @param failure 精简后的序列回放时的异常, 为空表示原序列未复现异常
+     * @param bucketKey 异常分类key, 参考 [FunTraverseCrashBuckets.getBucketKey]
+     * @param replayCount 总回放次数
+     */
+    class Result(val steps: List<Step>, val failure: Failure?, val bucketKey: String?, val replayCount: Int)
+
+    private var replayCount = 0
+
+    /**
+     * 查找能复现相同异常的最短调用序列(1-minimal: 删除其中任意一个调用后均无法复现)
+     */
+    fun minimize(steps: List<Step>): Result {
+        replayCount = 0
+        val originFailure = replay(steps) ?: return Result(steps, null, null, replayCount)
+        val bucketKey = FunTraverseCrashBuckets.getBucketKey(originFailure.throwable)
+
+        // 异常之后的调用不影响结果, 直接截断
+        var current = steps.subList(0, originFailure.stepIndex + 1)
+        var failure = originFailure
+        var n = 2
+
+        val executor = if (parallelism > 1) Executors.newFixedThreadPool(parallelism) else null
+        try {
+            while (current.size >= 2) {
+                val chunks = split(current, n)
+
+                // 先尝试各子集, 再尝试各补集
+                var found = findFailing(chunks, bucketKey, executor)
+                if (found == null && n > 2) {
+                    val complements = chunks.indices.map { i ->
+                        chunks.filterIndexed { j, _ -> j != i }.flatten()
+                    }
+                    found = findFailing(complements, bucketKey, executor)?.also { n = maxOf(n - 1, 2) }
+                } else if (found != null) {
+                    n = 2
+                }
+
+                if (found != null) {
+                    current = found.first.subList(0, found.second.stepIndex + 1)
+                    failure = found.second
+                    LoggerUtil.d(TAG, "minimize: reduced to ${current.size} steps")
+                } else if (n >= current.size) {
+                    break
+                } else {
+                    n = minOf(n * 2, current.size)
+                }
+            }
+        } finally {
+            executor?.shutdownNow()
+        }
+        return Result(current, failure, bucketKey, replayCount)
+    }
+
+    /**
+     * 回放各候选序列, 按顺序返回第一个复现相同异常的序列及其异常信息
+     */
+    private fun findFailing(
+        candidates: List<List<Step>>,
+        bucketKey: String,
+        executor: ExecutorService?
+    ): Pair<List<Step>, Failure>? {
+        val failures = if (executor == null) {
+            candidates.map { replay(it) }
+        } else {
+            executor.invokeAll(candidates.map { Callable { replay(it) } }).map { it.get() }
+        }
+        for (i in candidates.indices) {
+            val failure = failures[i] ?: continue
+            if (FunTraverseCrashBuckets.getBucketKey(failure.throwable) == bucketKey) {
+                return candidates[i] to failure
+            }
+        }
+        return null
+    }
+
+    private fun replay(steps: List<Step>): Failure? {
+        synchronized(this) { replayCount++ }
+        return traverseUtil.replay(steps, targetFactory())
+    }
+
+    // 将序列尽量均匀地分为n份
+    private fun split(steps: List<Step>, n: Int): List<List<Step>> {
+        val result = mutableListOf<List<Step>>()
+        var start = 0
+        for (i in 0 until n) {
+            val end = start + (steps.size - start) / (n - i)
+            if (end > start) {
+                result.add(steps.subList(start, end))
+            }
+            start = end
+        }
+        return result
+    }
+
+    companion object {
+        private const val TAG = "FunTraverseMinimizer"
+
+        /**
+         * 从 [FunTraversePersistenceUtil] 记录的实参组合序号日志中加载调用序列
+         * 仅使用方法开始执行的记录, 最后一条即为导致进程退出的调用
+         * P.S. 并行执行时记录可能超前于实际执行, 参考 [FunTraverseUtil.addInvokePlannedAction]
+         *
+         * @param journalPath 日志文件绝对路径, 即日志目录下的 [FunTraversePersistenceUtil.LOG_METHOD_ARG_INDEX]
+         */
+        @JvmStatic
+        fun loadSteps(journalPath: String): List<Step> {
+            val result = mutableListOf<Step>()
+            FunTraverseJournal.forEachRecord(journalPath) {
+                if (it.status == FunTraverseJournal.STATUS_STARTED) {
+                    result.add(Step(it.signature, it.argGroupIndex))
+                }
+            }
+            return result
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.lynxz.utils.reflect
 
 import org.lynxz.utils.FileUtil
-import org.lynxz.utils.convert2Int
 import java.io.File
 import java.lang.reflect.Method
 
@@ -12,7 +11,8 @@ import java.lang.reflect.Method
  * [FunTraversePersistenceUtil]  来创建实例,并自动从本地日志中提取信息,以便继续执行后续方法
  * [pendingInvokeMethodSignatureList] 来获取待执行的方法列表,若返回null,则表示之前未执行过
  * [writeMethodList2Log] 写入新的方法签名列表到日志文件中
- * [writeMethodArgIndex2Log] 写入新的方法签名及其对应的实参index调用数据到日志中
+ * [writeMethodArgIndex2Log] 写入新的方法签名及其对应的实参index调用数据到日志中, 日志格式参考 [FunTraverseJournal]
+ * [close] 测试结束后关闭日志文件
  * 其他:
  * 1. 回放fuzz测试时,将已存在的  fun_traverse_log/ 目录复制到 [parentLogFolderPath] 目录即可
  * 2. 示例代码:
@@ -28,9 +28,10 @@ import java.lang.reflect.Method
  *           perUtil.writeMethodList2Log(it.validMethodList)
  *           .deleteLogFile(FunTraversePersistenceUtil.LOG_METHOD_ARG_INDEX)
  *       }
- *       .addBeforeFuncInvokeAction(object : ProxyUtil.IFuncInvokeCallback {
+ *       .addInvokePlannedAction(object : ProxyUtil.IFuncInvokeCallback {
  *           override fun onFuncInvoke(method: Method, returnObj: Any?, argGroupIndex: Int, args: Array<out Any?>?): EnabledResult<Any>? {
  *           // 每次方法执行前记录日志: 所用实参组合序号, 当前方法签名,方便后续回放
+ *           // 该回调始终在调用线程中按执行顺序触发, 并行执行(setParallelism)时记录的日志也可回放
  *           // 设置当前正在进行方法遍历的method签名并写入到日志
  *           val methodSignature: String = FunTraverseUtil.getMethodSignature(method)
  *
@@ -52,7 +53,7 @@ class FunTraversePersistenceUtil(
         const val LOG_CLZ = "clz_path.txt" // 待验证的方法所在类完整路径信息
         const val LOG_METHOD_LIST = "method_list.txt" // 全部方法签名列表
         const val LOG_LAST_SIG = "last_invoke_method_sig.txt" // 最后执行的方法签名日志
-        const val LOG_METHOD_ARG_INDEX = "invoke_arg_group_index.txt" // 记录实参组合序号日志
+        const val LOG_METHOD_ARG_INDEX = "invoke_arg_group_index.journal" // 记录实参组合序号日志, 二进制格式
     }
 
     private val logPathList = mutableListOf<String>() // 所有的日志路径
@@ -75,6 +76,9 @@ class FunTraversePersistenceUtil(
     private val lastSigLogPath: String by lazy { "$dirPath$LOG_LAST_SIG" }
     private val methodArgIndexLogPath: String by lazy { "$dirPath$LOG_METHOD_ARG_INDEX" }
 
+    // 实参组合序号日志, 首次写入时打开, 之后保持打开状态
+    private val methodArgIndexJournal: FunTraverseJournal by lazy { FunTraverseJournal(methodArgIndexLogPath) }
+
     init {
         // 添加所有日志路径到列表中,并创建日志文件
         with(logPathList) {
@@ -96,7 +100,7 @@ class FunTraversePersistenceUtil(
         if (targetClzPathName == logClzPath) {
             // 每行表示一个方法签名
             methodSignatureListFromLog =
-                FileUtil.readAllLine(methodListLogPath).filter { it.isNotBlank() }
+                FileUtil.useLines(methodListLogPath) { lines -> lines.filter { it.isNotBlank() }.toList() }
 
             // 获取上次最后执行的方法签名信息,用于断点继续执行
             lastMethodSignatureFromLog = FileUtil.getFirstLineInfo(
@@ -107,20 +111,19 @@ class FunTraversePersistenceUtil(
             )
 
             // 获取确认的方法签名及其所使用的形参组合序号信息
-            val methodArgIndexLines = FileUtil.readAllLine(methodArgIndexLogPath)
-            for (line in methodArgIndexLines) {
-                val arr: Array<String> =
-                    line.trim { it <= ' ' }.split("\\s+".toRegex()).toTypedArray()
-                val methodSig = arr[0]
-                val list = mutableListOf<Int>()
-                arr[arr.size - 1]
-                    .trim { it <= ' ' }
-                    .split(",")
-                    .toTypedArray()
-                    .map { it.convert2Int(-1, 10) }
-                    .filter { it >= 0 }
-                    .forEach { list.add(it) }
-                methodArgGroupIndexMapFromLog[methodSig] = list
+            // 同一方法连续的记录视为一轮调用, 方法多次出现时以最后一轮为准
+            var lastSig: String? = null
+            FunTraverseJournal.forEachRecord(methodArgIndexLogPath) { record ->
+                if (record.status != FunTraverseJournal.STATUS_STARTED) {
+                    return@forEachRecord
+                }
+                if (record.signature != lastSig) {
+                    lastSig = record.signature
+                    methodArgGroupIndexMapFromLog[record.signature] = mutableListOf()
+                }
+                if (record.argGroupIndex >= 0) {
+                    methodArgGroupIndexMapFromLog[record.signature]?.add(record.argGroupIndex)
+                }
             }
         }
         // 写入本次类完整路径信息
@@ -136,6 +139,10 @@ class FunTraversePersistenceUtil(
      * [LOG_METHOD_ARG_INDEX], [LOG_CLZ]
      */
     fun deleteLogFile(vararg logNames: String?): FunTraversePersistenceUtil {
+        // 先关闭实参组合序号日志, 下次写入时会重新创建
+        if (logNames.isNullOrEmpty() || logNames.contains(LOG_METHOD_ARG_INDEX)) {
+            methodArgIndexJournal.close()
+        }
         if (logNames.isNullOrEmpty()) {
             FileUtil.create(dirPath, isDirPath = true, recreateIfExist = true)
         } else {
@@ -234,6 +241,7 @@ class FunTraversePersistenceUtil(
 
     /**
      * 写入日志: 当前方法调用顺序及其所用参数组合的序号信息
+     * 每条记录仅追加写入, 耗时与已记录条数无关
      * P.S. 不更新 [methodArgGroupIndexMapFromLog]
      *
      * @param methodSignature 方法签名
@@ -243,22 +251,36 @@ class FunTraversePersistenceUtil(
         methodSignature: String,
         vararg argGroupIndexes: Int
     ): FunTraversePersistenceUtil {
-        // 判断是否需要重新写入一行
-        val lastLine = FileUtil.getFirstLineInfo(
-            methodArgIndexLogPath,
-            reverse = true,
-            skipEmptyLine = true,
-            defaultMsg = ""
-        )
         for (argGroupIndex in argGroupIndexes) {
-            val msg = if (lastLine?.contains(methodSignature) == true) { // 已开始记录序号,则继续追加
-                "$argGroupIndex,"
-            } else { // 方法尚未记录,则另起一行进行记录
-                "\n$methodSignature\t$argGroupIndex,"
-            }
-
-            FileUtil.writeToFile(msg, methodArgIndexLogPath, append = true, autoAddCTRL = false)
+            methodArgIndexJournal.append(methodSignature, argGroupIndex, FunTraverseJournal.STATUS_STARTED)
         }
         return this
     }
+
+    /**
+     * 写入日志: 方法执行结果, 可在 after hook 中调用, 不影响回放
+     *
+     * @param methodSignature 方法签名
+     * @param argGroupIndex 使用的实参组合序号
+     * @param success 是否执行成功
+     */
+    fun writeMethodInvokeStatus2Log(
+        methodSignature: String,
+        argGroupIndex: Int,
+        success: Boolean
+    ): FunTraversePersistenceUtil {
+        methodArgIndexJournal.append(
+            methodSignature,
+            argGroupIndex,
+            if (success) FunTraverseJournal.STATUS_SUCCESS else FunTraverseJournal.STATUS_FAILED
+        )
+        return this
+    }
+
+    /**
+     * 关闭日志文件, 测试结束后调用
+     */
+    fun close() {
+        methodArgIndexJournal.close()
+    }
 }
\ No newline at end of file
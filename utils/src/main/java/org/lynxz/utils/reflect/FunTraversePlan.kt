@@ -0,0 +1,99 @@
+package org.lynxz.utils.reflect
+
+import java.lang.reflect.Method
+import java.lang.reflect.Modifier
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * [FunTraverseUtil] 的遍历计划: 按方法过滤条件筛选后的方法列表及其签名, 各方法的形参值组合空间
+ * 方法列表创建后不可修改, 缓存在类的反射元数据中(参考 [ReflectMetaCache.ClassMeta]), 同一个类的多个实例及多线程共用
+ * 多次或并行测试同一个类时, 方法查找及过滤仅需执行一次
+ */
+internal class FunTraversePlan private constructor(
+
+    /**
+     * 符合过滤条件的方法列表, 按类中声明顺序, 不可修改
+     */
+    val methods: List<Method>,
+
+    /**
+     * 方法签名 -> 方法
+     */
+    val signatureMethodMap: Map<String, Method>
+) {
+
+    /**
+     * 方法过滤条件
+     * @param methodNamePattern 方法名正则匹配表达式
+     * @param includeInheritedMethod 是否包含父类方法
+     * @param excludeMethodNames 不执行的方法名(不含形参)
+     * @param excludeMethodNamesWithParaType 不执行的方法名(含形参), 如: test(int,float)
+     */
+    data class Key(
+        val methodNamePattern: String,
+        val includeInheritedMethod: Boolean,
+        val excludeMethodNames: Set<String>,
+        val excludeMethodNamesWithParaType: Set<String>
+    )
+
+    /**
+     * 形参值组合空间的key, 仅用于使用内置形参值(未调用 [FunTraverseUtil.addArgTypeValue])的情况
+     * @param enableMultiArgTypeValues 是否启用了内置多类型值
+     * @param defaultValueVersion 内置形参值的版本, 内置值变化时递增
+     */
+    data class ArgSpaceKey(
+        val method: Method,
+        val enableMultiArgTypeValues: Boolean,
+        val defaultValueVersion: Int
+    )
+
+    /**
+     * 各方法使用内置形参值时的形参值组合空间, 仅缓存候选值均不可修改(基本类型/String/枚举等)的组合空间
+     */
+    val argSpaceMap = ConcurrentHashMap<ArgSpaceKey, ArgCombinationSpace>()
+
+    companion object {
+
+        /**
+         * 获取指定类满足过滤条件的遍历计划, 不存在时创建
+         */
+        fun get(clz: Class<*>, key: Key): FunTraversePlan =
+            ReflectMetaCache.getClassMeta(clz).traversePlanMap.getOrPut(key) { create(clz, key) }
+
+        private fun create(clz: Class<*>, key: Key): FunTraversePlan {
+            val allGetMethods = ReflectUtil.getSpecialMethods(
+                clz,
+                key.methodNamePattern,
+                null,
+                key.includeInheritedMethod,
+                Modifier.PUBLIC
+            )
+            val methods = ArrayList<Method>(allGetMethods.size)
+            val signatureMethodMap = HashMap<String, Method>()
+            for (method in allGetMethods) {
+                val methodName = method.name
+                // 过滤掉不执行的方法,比如对象内存的释放: delete 等
+                if (key.excludeMethodNames.contains(methodName)
+                    || key.excludeMethodNames.contains(methodName.toLowerCase(Locale.getDefault()))
+                    || methodName.startsWith("$")
+                ) {
+                    continue
+                }
+                val sig = FunTraverseUtil.getMethodSignature(method) // 完整方法限定名, 如: static_test(int,float)_void
+                if (key.excludeMethodNamesWithParaType.isNotEmpty()) {
+                    // 仅方法名和形参列表,如: test(int,float)
+                    val pureMethodSig = sig.replace("static_", "").substringBefore("_")
+                    if (key.excludeMethodNamesWithParaType.contains(pureMethodSig)
+                        || key.excludeMethodNamesWithParaType.contains(pureMethodSig.toLowerCase(Locale.getDefault()))
+                    ) {
+                        continue
+                    }
+                }
+                methods.add(method)
+                signatureMethodMap[sig] = method
+            }
+            return FunTraversePlan(Collections.unmodifiableList(methods), Collections.unmodifiableMap(signatureMethodMap))
+        }
+    }
+}
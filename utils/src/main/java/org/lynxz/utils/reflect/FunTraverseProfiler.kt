@@ -0,0 +1,279 @@
+package org.lynxz.utils.reflect
+
+import android.os.Debug
+import org.lynxz.utils.FileUtil
+import org.lynxz.utils.log.LoggerUtil
+import org.lynxz.utils.thread.DispatchTracer
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Future
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * [FunTraverseUtil] 方法执行耗时统计工具, 通过 [FunTraverseUtil.setProfiler] 启用
+ * 记录每次方法执行(method.invoke)的耗时及内存分配量, 可用于发现待测接口的性能退化
+ * 1. 按方法签名分别统计耗时直方图: [getMethodStats]
+ * 2. 记录耗时最长的若干次执行(方法签名+实参组合序号): [getSlowRecords]
+ * 3. 超时检测: 执行时长超过 timeoutMs 仍未结束时, 打印执行线程堆栈并记录为超时(无法中断执行)
+ * 4. 导出报告: [generateReport], [exportReport]
+ * 使用完毕后需调用 [release] 停止超时检测线程
+ *
+ * @param timeoutMs 单次执行超时时长, 单位:ms, 小于等于0表示不检测超时
+ * @param maxSlowRecordSize 最多保留的慢执行记录条数, 仅保留耗时最长的记录
+ * @param trackAllocation 是否统计执行线程的内存分配量, 依赖 Debug.startAllocCounting, 会降低执行速度
+ */
+class FunTraverseProfiler @JvmOverloads constructor(
+    private val timeoutMs: Long = 0L,
+    private val maxSlowRecordSize: Int = 50,
+    private val trackAllocation: Boolean = false
+) {
+
+    /**
+     * 单个方法的统计信息
+     * @param histogram 执行耗时直方图
+     */
+    class MethodStat(val histogram: DispatchTracer.LatencyHistogram = DispatchTracer.LatencyHistogram()) {
+        internal val allocBytes = AtomicLong(0)
+        internal val timeoutCount = AtomicInteger(0)
+
+        /**
+         * 平均每次执行分配的内存, 单位:byte, 未启用 trackAllocation 时为0
+         */
+        fun avgAllocBytes() = if (histogram.count() == 0L) 0L else allocBytes.get() / histogram.count()
+
+        /**
+         * 超时次数
+         */
+        fun timeoutCount() = timeoutCount.get()
+    }
+
+    /**
+     * 单次执行记录
+     * @param signature 方法签名, 参考 [FunTraverseUtil.getMethodSignature]
+     * @param argGroupIndex 实参组合序号, -1表示无形参
+     * @param costMs 执行耗时, 单位:ms, 超时且仍未结束时为超时时长, 结束后更新为实际耗时
+     * @param allocBytes 执行线程分配的内存, 单位:byte, 未启用 trackAllocation 或超时且仍未结束时为0
+     * @param timeout 是否超时
+     */
+    data class SlowRecord(
+        val signature: String,
+        val argGroupIndex: Int,
+        val costMs: Double,
+        val allocBytes: Long,
+        val timeout: Boolean
+    )
+
+    /**
+     * 执行中的方法信息, 由 [onInvokeStart] 返回, 执行结束后传给 [onInvokeEnd]
+     */
+    class Invocation internal constructor(
+        internal val signature: String,
+        internal val argGroupIndex: Int,
+        internal val thread: Thread,
+        internal val startNanos: Long,
+        internal val startAlloc: Long
+    ) {
+        // 以下两个属性需持有本对象锁访问
+        internal var finished = false
+
+        // 超时时记录的慢执行记录, 执行结束后替换为实际耗时, 未超时为null
+        internal var timeoutRecord: SlowRecord? = null
+
+        internal var watchdogFuture: Future<*>? = null
+    }
+
+    private val methodStatMap = ConcurrentHashMap<String, MethodStat>()
+
+    // 按耗时升序的小顶堆, 仅保留耗时最长的 maxSlowRecordSize 条
+    private val slowRecords = PriorityQueue<SlowRecord>(maxOf(maxSlowRecordSize, 1), compareBy { it.costMs })
+
+    // 超时检测线程, 延迟创建
+    @Volatile
+    private var watchdog: ScheduledThreadPoolExecutor? = null
+
+    init {
+        if (trackAllocation) {
+            @Suppress("DEPRECATION")
+            Debug.startAllocCounting()
+        }
+    }
+
+    /**
+     * 方法开始执行前调用
+     */
+    fun onInvokeStart(signature: String, argGroupIndex: Int): Invocation {
+        val invocation = Invocation(
+            signature,
+            argGroupIndex,
+            Thread.currentThread(),
+            System.nanoTime(),
+            if (trackAllocation) getThreadAllocSize() else 0L
+        )
+        if (timeoutMs > 0) {
+            invocation.watchdogFuture = getWatchdog().schedule(
+                { onTimeout(invocation) },
+                timeoutMs,
+                TimeUnit.MILLISECONDS
+            )
+        }
+        return invocation
+    }
+
+    /**
+     * 方法执行结束(包括抛出异常)后调用, 需与 [onInvokeStart] 在同一线程
+     */
+    fun onInvokeEnd(invocation: Invocation) {
+        val costNanos = System.nanoTime() - invocation.startNanos
+        val allocBytes = if (trackAllocation) getThreadAllocSize() - invocation.startAlloc else 0L
+        val timeoutRecord = synchronized(invocation) {
+            invocation.finished = true
+            invocation.timeoutRecord
+        }
+        invocation.watchdogFuture?.cancel(false)
+
+        val stat = methodStatMap.getOrPut(invocation.signature) { MethodStat() }
+        stat.histogram.record(costNanos)
+        stat.allocBytes.addAndGet(allocBytes)
+        if (timeoutRecord != null) { // 移除超时时记录的临时结果, 替换为实际耗时
+            synchronized(slowRecords) { slowRecords.remove(timeoutRecord) }
+        }
+        addSlowRecord(
+            SlowRecord(
+                invocation.signature,
+                invocation.argGroupIndex,
+                costNanos / NANOS_PER_MS,
+                allocBytes,
+                timeoutRecord != null
+            )
+        )
+    }
+
+    /**
+     * 获取各方法的统计信息, key-方法签名
+     */
+    fun getMethodStats(): Map<String, MethodStat> = HashMap(methodStatMap)
+
+    /**
+     * 获取耗时最长的执行记录, 按耗时降序排序
+     */
+    fun getSlowRecords(): List<SlowRecord> =
+        synchronized(slowRecords) { slowRecords.sortedByDescending { it.costMs } }
+
+    /**
+     * 清空已统计的数据
+     */
+    fun reset() {
+        methodStatMap.clear()
+        synchronized(slowRecords) { slowRecords.clear() }
+    }
+
+    /**
+     * 停止超时检测线程及内存分配统计, 已统计的数据保留
+     */
+    fun release() {
+        watchdog?.shutdownNow()
+        watchdog = null
+        if (trackAllocation) {
+            @Suppress("DEPRECATION")
+            Debug.stopAllocCounting()
+        }
+    }
+
+    /**
+     * 生成文本报告: 各方法耗时统计(按最大耗时降序), 耗时最长的执行记录
+     */
+    fun generateReport(): String {
+        val sb = StringBuilder()
+        sb.append("== methods(signature\tcount\tavg/p50/p99/max(ms)\tavgAlloc(byte)\ttimeout) ==\n")
+        methodStatMap.entries
+            .sortedByDescending { it.value.histogram.maxMs() }
+            .forEach { (signature, stat) ->
+                val histogram = stat.histogram
+                sb.append(signature)
+                    .append("\t").append(histogram.count())
+                    .append("\t").append(
+                        String.format(
+                            Locale.CHINA,
+                            "%.2f/%.2f/%.2f/%.2f",
+                            histogram.avgMs(),
+                            histogram.percentileMs(0.5),
+                            histogram.percentileMs(0.99),
+                            histogram.maxMs()
+                        )
+                    )
+                    .append("\t").append(stat.avgAllocBytes())
+                    .append("\t").append(stat.timeoutCount())
+                    .append("\n")
+            }
+
+        sb.append("== slowest invocations(signature\targGroupIndex\tcost(ms)\talloc(byte)) ==\n")
+        getSlowRecords().forEach {
+            sb.append(it.signature)
+                .append("\t").append(it.argGroupIndex)
+                .append("\t").append(String.format(Locale.CHINA, "%.2f", it.costMs))
+                .append("\t").append(it.allocBytes)
+                .append(if (it.timeout) "\ttimeout" else "")
+                .append("\n")
+        }
+        return sb.toString()
+    }
+
+    /**
+     * 导出报告到文件
+     * @param absFilePath 文件绝对路径
+     * @return 是否写入成功
+     */
+    fun exportReport(absFilePath: String) = FileUtil.writeToFile(generateReport(), absFilePath)
+
+    private fun onTimeout(invocation: Invocation) {
+        // 执行仍未结束, 先以超时时长记录, 执行结束后在 onInvokeEnd 中更新为实际耗时
+        val record = SlowRecord(invocation.signature, invocation.argGroupIndex, timeoutMs.toDouble(), 0L, true)
+        synchronized(invocation) {
+            if (invocation.finished) {
+                return
+            }
+            invocation.timeoutRecord = record
+            addSlowRecord(record)
+        }
+        methodStatMap.getOrPut(invocation.signature) { MethodStat() }.timeoutCount.incrementAndGet()
+
+        val sb = StringBuilder()
+        sb.append("${invocation.signature} argGroupIndex=${invocation.argGroupIndex} timeout(>${timeoutMs}ms), thread=${invocation.thread.name}")
+        invocation.thread.stackTrace.forEach { sb.append("\n\tat ").append(it) }
+        LoggerUtil.w(TAG, sb.toString())
+    }
+
+    private fun addSlowRecord(record: SlowRecord) {
+        if (maxSlowRecordSize <= 0) {
+            return
+        }
+        synchronized(slowRecords) {
+            if (slowRecords.size < maxSlowRecordSize) {
+                slowRecords.add(record)
+            } else if (record.costMs > slowRecords.peek()!!.costMs) {
+                slowRecords.poll()
+                slowRecords.add(record)
+            }
+        }
+    }
+
+    private fun getWatchdog(): ScheduledThreadPoolExecutor {
+        watchdog?.let { return it }
+        return synchronized(this) {
+            watchdog ?: ScheduledThreadPoolExecutor(1) { r ->
+                Thread(r, "$TAG-watchdog").apply { isDaemon = true }
+            }.apply { removeOnCancelPolicy = true }.also { watchdog = it }
+        }
+    }
+
+    @Suppress("DEPRECATION")
+    private fun getThreadAllocSize() = Debug.getThreadAllocSize().toLong()
+
+    companion object {
+        private const val TAG = "FunTraverseProfiler"
+        private const val NANOS_PER_MS = 1_000_000.0
+    }
+}
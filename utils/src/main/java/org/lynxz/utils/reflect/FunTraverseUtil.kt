@@ -6,11 +6,15 @@ import org.lynxz.utils.reflect.FunTraverseUtil.Companion.getMethodSignature
 import org.lynxz.utils.reflect.ProxyUtil.IFuncInvokeCallback
 import org.lynxz.utils.reflect.ReflectUtil.generateDefaultTypeValue
 import org.lynxz.utils.reflect.ReflectUtil.generateDefaultTypeValueList
-import org.lynxz.utils.reflect.ReflectUtil.getSpecialMethods
 import java.lang.reflect.InvocationTargetException
 import java.lang.reflect.Method
 import java.lang.reflect.Modifier
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
 import java.util.regex.Pattern
 
 /**
@@ -29,10 +33,15 @@ import java.util.regex.Pattern
  *      .addArgTypeValue(Int::class.java, 666) // 可选, 额外添加参数类型对应的值, 可多条,内置给定了默认值
  *      .enableDefaultMultiArtTypeValues() // 可选, 启用内置的多默认值
  *      .setMaxArgValueGroupSize(3) // 可选, 候选形参值组合过多时,可设置最大组合数, 负数表示不限制,默认为10个
+ *      .setCoverageStrength(2) // 可选, 使用pairwise覆盖数组代替随机抽取形参值组合, 此时 setMaxArgValueGroupSize 无效
+ *      .setCoverageGuided(1000) // 可选, 根据执行结果反馈调度方法, 共执行1000次
  *      .setMethodArgGroupIndexMap(null) // 可选, 设置某些方法调用时所用的实参组合序号列表
  *      .setMethodArgGroupIndexList("xxxx",null) // 可选,单独设置某方法调用时所使用的的实参组合序号列表
  *      .addBeforeFuncInvokeAction(null) // 可选,可多条,方法执行前回调
  *      .addAfterFuncInvokeAction(null) // 可选,可多条,方法执行后回调
+ *      .addInvokePlannedAction(null) // 可选,可多条,方法执行顺序确定后在调用线程中回调,用于记录回放日志
+ *      .setParallelism(4) { Main() } // 可选, 使用4个线程并行执行, 每个线程使用独立的待测对象
+ *      .setProfiler(FunTraverseProfiler(timeoutMs = 3000)) // 可选, 统计各方法执行耗时, 并检测超时
  *      .invokeAllPublic() // 必须, 触发执行符合条件的所有方法
  * </pre>
  *
@@ -40,6 +49,8 @@ import java.util.regex.Pattern
  * 通过 [validMethodList] 获取待执行的方法列表
  * 通过 [invokeMethodSignatureList] 获取待执行的方法签名列表, 用于持久化
  * 通过 [getMethodSignature] 获取方法签名
+ * 通过 [usedMethodArgGroupIndexMap] 获取最近一次执行时各方法所用的实参组合序号, 可用于 [setMethodArgGroupIndexMap] 回放
+ * 通过 [replay] 按指定调用序列回放, 可配合 [FunTraverseMinimizer] 精简导致异常的调用序列
  */
 class FunTraverseUtil<T> private constructor(private val targetObj: T) {
     // 指定对象的 Class,只会处理该Class中的public方法
@@ -67,12 +78,28 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
 
     private val argTypeValueMap: HashMap<Class<*>?, MutableList<Any?>?>  // 参数类型对应的数据
     private var enableMultiArgTypeValues = false // 是否启用内置多类型实例功能(引用类型会自动创建 null 和 具体实例对象)
+    private var customArgTypeValues = false // 是否额外添加了形参值, 未添加时可共用遍历计划中缓存的形参值组合空间
 
     // 多参数方法, 每个参数又有多个可能值时, 排列组合数量可能太大, 通过本属性进行限制, 提取其中部分排列参数值进行验证
     // 是按顺序提取还是乱序,根据 randomSortMethods 确定
     // 负数表示不限制
     private var maxArgValueGroupSize = 10
 
+    // 实参组合覆盖强度, 大于等于2时使用 t-wise 覆盖数组确定实参组合, 否则随机抽取, 参考 CoveringArrayGenerator
+    private var coverageStrength = 0
+
+    // 反馈驱动模式的总执行次数, 小于等于0表示不启用, 参考 CoverageGuidedScheduler
+    private var coverageGuidedBudget = 0
+
+    // 反馈驱动模式下记录方法执行异常, 为空时执行完毕后抛出首个异常
+    private var crashBuckets: FunTraverseCrashBuckets? = null
+
+    /**
+     * 最近一次执行 [invokeAllPublic] 时, 各方法所用的实参组合序号列表(按执行顺序), 不包含无形参的方法
+     * key: 方法签名 value: 实参组合序号列表
+     */
+    val usedMethodArgGroupIndexMap: MutableMap<String, MutableList<Int>?> = LinkedHashMap()
+
     /**
      * 用于回放测试
      * key: method signature 通过 [.getMethodSignature] 生成
@@ -81,6 +108,35 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
     private var methodArgGroupIndexMap = mutableMapOf<String, MutableList<Int>?>()
     private val beforeInvokeActionSet = HashSet<IFuncInvokeCallback>() // 方法执行前触发调用
     private val afterInvokeActionSet = HashSet<IFuncInvokeCallback>() // 方法执行后触发调用
+    private val plannedInvokeActionSet = LinkedHashSet<IFuncInvokeCallback>() // 方法执行顺序确定后在调用线程中触发
+
+    // 并行执行的线程数, 小于等于1表示在调用线程中串行执行
+    private var parallelism = 1
+
+    // 并行执行时, 为每个工作线程创建独立的待测对象, 为空时所有线程共用 targetObj
+    private var targetFactory: (() -> T)? = null
+
+    // 并行执行时, 保证 before/after hook 不会同时回调
+    private val hookLock = Any()
+
+    // 当前方法过滤条件对应的遍历计划, 过滤条件变化时置空
+    @Volatile
+    private var plan: FunTraversePlan? = null
+
+    // 回放时使用: 方法签名 -> 方法, 包含所有public方法(不受方法名过滤条件影响)
+    private val replayMethodMap: Map<String, Method> by lazy {
+        FunTraversePlan.get(
+            targetClz,
+            FunTraversePlan.Key(".*", includeInheritedMethod, emptySet(), emptySet())
+        ).signatureMethodMap
+    }
+
+    // 回放时使用: 各方法对应的形参值组合空间, 多个回放线程共用
+    private val replayArgSpaceMap = ConcurrentHashMap<Method, ArgCombinationSpace>()
+
+    // 方法执行耗时统计工具, 为空时不统计
+    @Volatile
+    private var profiler: FunTraverseProfiler? = null
 
     init {
         targetClz = targetObj!!::class.java as Class<T>
@@ -95,6 +151,7 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
      */
     fun setTargetClz(targetClz: Class<in T>): FunTraverseUtil<T> {
         this.targetClz = targetClz
+        plan = null
         return this
     }
 
@@ -106,6 +163,7 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
             try {
                 Pattern.compile(methodNamePattern)
                 this.methodNamePattern = methodNamePattern
+                plan = null
             } catch (e: Exception) {
                 e.printStackTrace()
                 LoggerUtil.w(TAG, "setMethodNamePattern fail as pattern exception:${e.message}")
@@ -129,8 +187,10 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
             name = name!!.replace("\n", "").replace("\t", "").replace(" ", "")
             if (name.contains("(")) { // 表示用户限定了方法名和形参列表
                 excludeMethodNamesWithParaType.add(name)
+                plan = null
             } else { // 用户仅提供了方法名, 则表示其重载方法也会被一并过滤
                 this.excludeMethodNames.add(name)
+                plan = null
             }
         }
         //        if (excludeMethodNames != null && excludeMethodNames.length > 0) {
@@ -150,6 +210,7 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         vararg values: Any?
     ): FunTraverseUtil<T> {
         addTypeValue(argTypeValueMap, typeClz, *values)
+        customArgTypeValues = true
         return this
     }
 
@@ -186,6 +247,34 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         return this
     }
 
+    /**
+     * 使用 t-wise 覆盖数组确定各方法的实参组合, 代替随机抽取
+     * 任意 t 个形参的候选值组合均至少执行一次, 所需执行次数远小于全部组合数, 此时 [setMaxArgValueGroupSize] 无效
+     *
+     * @param strength 覆盖强度, 如2表示pairwise, 小于2表示不启用(随机抽取)
+     */
+    fun setCoverageStrength(strength: Int): FunTraverseUtil<T> {
+        coverageStrength = strength
+        return this
+    }
+
+    /**
+     * 启用反馈驱动模式: 根据每次执行结果中新出现的特征(异常类型, 返回值, 执行期间 [LoggerUtil] 打印的日志)调度方法及实参组合
+     * 所有方法先各执行一次, 剩余次数优先分配给产出新特征较多的方法, 比随机顺序更快发现异常
+     * 1. 始终在调用线程中串行执行, [setParallelism] 无效, 不使用 [setSpecialMethodList] 指定的顺序及 [setMethodArgGroupIndexMap]
+     * 2. 方法执行异常后继续执行, 异常记录到 crashBuckets 中(包含此前的调用序列, 可通过 [FunTraverseMinimizer] 精简)
+     * 3. 仅能统计满足 [LoggerUtil.logLevel] 的日志
+     *
+     * @param budget 总执行次数, 小于等于0表示不启用
+     * @param crashBuckets 记录执行异常, 为空时执行完毕后抛出首个异常
+     */
+    @JvmOverloads
+    fun setCoverageGuided(budget: Int, crashBuckets: FunTraverseCrashBuckets? = null): FunTraverseUtil<T> {
+        coverageGuidedBudget = budget
+        this.crashBuckets = crashBuckets
+        return this
+    }
+
     /**
      * 设置多个方法测试时所使用的的形参组合序号列表
      * 若最终执行时, methodArgGroupIndexMap 不包含某个方法,则直接随机运行
@@ -239,6 +328,46 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         return this
     }
 
+    /**
+     * 设置方法执行顺序确定后的回调, 始终在调用线程中按串行执行顺序回调, returnObj 固定为null
+     * 用于记录 [FunTraversePersistenceUtil] 回放日志: 并行执行时 before/after hook 的回调顺序不确定, 记录的日志无法回放
+     * P.S. 并行执行时在任务分发前回调, 因此记录可能超前于实际执行, 最多超前 parallelism * [PARALLEL_PENDING_FACTOR] 条
+     */
+    fun addInvokePlannedAction(plannedAction: IFuncInvokeCallback?): FunTraverseUtil<T> {
+        if (plannedAction != null) {
+            plannedInvokeActionSet.add(plannedAction)
+        }
+        return this
+    }
+
+    /**
+     * 设置并行执行
+     * 所有 (方法, 实参组合序号) 会先在调用线程中按串行顺序确定, 再分发到线程池中执行
+     * 1. before/after hook 在工作线程中回调, 不会同时回调但顺序不确定, 需记录回放日志时请使用 [addInvokePlannedAction]
+     * 2. 已分发但未执行完成的任务最多为 parallelism * [PARALLEL_PENDING_FACTOR] 个, 避免一次性创建所有任务
+     * 3. 任一方法执行异常时, 停止分发剩余任务, 等待执行中的任务结束后, 在调用线程中重新抛出该异常
+     *
+     * @param parallelism 线程数, 小于等于1表示串行执行(默认)
+     * @param targetFactory 为每个工作线程创建独立的待测对象, 避免多线程同时操作同一对象, 为空时共用 targetObj
+     */
+    @JvmOverloads
+    fun setParallelism(parallelism: Int, targetFactory: (() -> T)? = null): FunTraverseUtil<T> {
+        this.parallelism = parallelism
+        this.targetFactory = targetFactory
+        return this
+    }
+
+    /**
+     * 设置方法执行耗时统计工具, 统计每次 method.invoke 的耗时及内存分配量(不含hook及日志打印耗时)
+     * 执行完毕后可通过 [FunTraverseProfiler.generateReport] 获取报告
+     *
+     * @param profiler 为空时不统计
+     */
+    fun setProfiler(profiler: FunTraverseProfiler?): FunTraverseUtil<T> {
+        this.profiler = profiler
+        return this
+    }
+
     /**
      * 获取待验证的方法签名列表
      */
@@ -257,50 +386,22 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
 
     /**
      * 获取符合条件的待测方法列表
+     * 方法查找及过滤结果缓存在 [FunTraversePlan] 中, 同一个类的多个实例共用
      */
     val validMethodList: List<Method?>?
         get() {
             if (invokeMethodList != null) {
                 return invokeMethodList
             }
-            val resultMethodList: MutableList<Method?> = ArrayList()
-            val allGetMethods =
-                getSpecialMethods(
-                    targetClz,
-                    methodNamePattern,
-                    null,
-                    includeInheritedMethod,
-                    Modifier.PUBLIC
-                )
-            val signatureMethodMap: MutableMap<String?, Method> = HashMap()
-            for (method in allGetMethods) {
-                val methodName = method.name
-                // 过滤掉不执行的方法,比如对象内存的释放: delete 等
-                if (excludeMethodNames.contains(methodName)
-                    || excludeMethodNames.contains(methodName.toLowerCase(Locale.getDefault()))
-                    || methodName.startsWith("$")
-                ) {
-                    continue
-                }
-                val sig = getMethodSignatureInner(method) // 完整方法限定名, 如: static_test(int,float)_void
-                val pureMethodSig = sig.trim { it <= ' ' }
-                    .replace("static_", "").split("_")
-                    .toTypedArray()[0] // 仅方法名和形参列表,如: test(int,float)
-                if (excludeMethodNamesWithParaType.contains(pureMethodSig)
-                    || excludeMethodNamesWithParaType.contains(pureMethodSig.toLowerCase(Locale.getDefault()))
-                ) {
-                    continue
-                }
-                resultMethodList.add(method)
-                signatureMethodMap[sig] = method
-            }
+            val plan = getPlan()
+            val resultMethodList: MutableList<Method?> = ArrayList(plan.methods)
             if (resultMethodList.isEmpty()) {
                 return resultMethodList
             }
             if (specialMethodList != null && specialMethodList!!.isNotEmpty()) { // 调用方已指定了方法执行顺序,则按指定顺序生成方法列表
                 resultMethodList.clear()
                 for (sig in specialMethodList!!) {
-                    val method = signatureMethodMap[sig]
+                    val method = plan.signatureMethodMap[sig]
                     if (method != null) {
                         resultMethodList.add(method)
                     }
@@ -312,36 +413,71 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
             return invokeMethodList
         }
 
-    // 缓存method及其对应的签名字符串
-    private val methodSignatureMap: MutableMap<Method?, String?> = HashMap()
+    /**
+     * 根据当前的方法过滤条件获取遍历计划
+     */
+    private fun getPlan(): FunTraversePlan = plan ?: FunTraversePlan.get(
+        targetClz,
+        FunTraversePlan.Key(
+            methodNamePattern,
+            includeInheritedMethod,
+            HashSet(excludeMethodNames),
+            HashSet(excludeMethodNamesWithParaType)
+        )
+    ).also { plan = it }
+
+    // 缓存method及其对应的签名字符串, 并行执行时会被多线程访问, 避免每次均查找类的反射元数据
+    private val methodSignatureMap: MutableMap<Method, String> = ConcurrentHashMap()
 
     /**
      * 拼接生成方法签名字符串,用于持久化, 格式为 [static_]methodName([para1,para2...])_returnType
-     * 优先从缓存中提取,若未找到再生成
+     * 优先从缓存中提取,若未找到再生成, 参考 [getMethodSignature]
      */
     private fun getMethodSignatureInner(method: Method?): String {
-        var sig = methodSignatureMap[method]
-        if (sig != null) {
-            return sig
+        if (method == null) {
+            return "unknown"
         }
-        sig = if (method == null) "unknown" else getMethodSignature(method)
-        methodSignatureMap[method] = sig
-        return sig
+        return methodSignatureMap.getOrPut(method) { getMethodSignature(method) }
     }
 
     /**
-     * 根据所给参数类型顺序, 生成可能的形参值组合列表
-     * P.S. 返回固定的排列组合结果, 不做随机
-     *
-     * @param parameterTypes 形参类型数组(非空,长度自行确保大于0返回有效形参值组合列表)
-     * @return 形参值组合列表, 每个元素表示一套形参值
+     * 获取方法的形参值组合空间
+     * 未额外添加形参值且候选值均不可修改(基本类型/String/枚举等)时, 使用遍历计划中缓存的组合空间, 同一个类的多个实例共用
+     * 包含其他引用类型实例时, 各实例使用独立创建的实参对象, 避免被测方法修改实参后影响其他实例的执行及回放
      */
-    private fun generateArgValuesGroupList(parameterTypes: Array<Class<*>>): List<Array<Any?>>? {
-        val argsValueList: MutableList<Array<Any?>> = ArrayList() // 参数类型对应的待测试值列表
-        val paraSize = parameterTypes.size
-        if (paraSize == 0) {
-            return argsValueList
+    private fun getArgCombinationSpace(method: Method): ArgCombinationSpace {
+        if (customArgTypeValues) {
+            return generateArgCombinationSpace(method.parameterTypes)
+        }
+        val key = FunTraversePlan.ArgSpaceKey(method, enableMultiArgTypeValues, defaultArgTypeValueVersion)
+        val plan = getPlan()
+        plan.argSpaceMap[key]?.let { return it }
+        val argSpace = generateArgCombinationSpace(method.parameterTypes)
+        return if (isImmutable(argSpace)) plan.argSpaceMap.putIfAbsent(key, argSpace) ?: argSpace else argSpace
+    }
+
+    // 组合空间中的候选值是否均不可修改, 可在多个实例间共用
+    private fun isImmutable(argSpace: ArgCombinationSpace): Boolean {
+        for (paramIndex in 0 until argSpace.arity) {
+            for (valueIndex in 0 until argSpace.getRadix(paramIndex)) {
+                val value = argSpace.getCandidate(paramIndex, valueIndex)
+                // 基本类型的包装类, 不包括 AtomicInteger 等可修改的 Number 子类
+                if (value != null && value !is String && value !is Enum<*> && value.javaClass.kotlin.javaPrimitiveType == null) {
+                    return false
+                }
+            }
         }
+        return true
+    }
+
+    /**
+     * 根据所给参数类型顺序, 生成形参值组合空间, 参考 [ArgCombinationSpace]
+     * P.S. 组合顺序固定, 不做随机, 也不预先生成所有组合
+     *
+     * @param parameterTypes 形参类型数组(非空,长度自行确保大于0返回有效形参值组合)
+     */
+    private fun generateArgCombinationSpace(parameterTypes: Array<Class<*>>): ArgCombinationSpace {
+        val argsValueList: MutableList<Array<Any?>> = ArrayList(parameterTypes.size) // 参数类型对应的待测试值列表
 
         // 查找形参类型对应的值列表
         for (type in parameterTypes) {
@@ -355,21 +491,9 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
                 }
                 argTypeValueMap[type] = list
             }
-            val size = list.size
-            var objects: Array<Any?>
-            if (size > 0) {
-                objects = arrayOfNulls(size)
-                for (i in 0 until size) {
-                    objects[i] = list[i]
-                }
-            } else {
-                objects = arrayOf(generateDefaultTypeValue(type))
-            }
-            argsValueList.add(objects)
+            argsValueList.add(if (list.isNotEmpty()) list.toTypedArray() else arrayOf(generateDefaultTypeValue(type)))
         }
-
-        // 生成所有可能的参数值组合
-        return combination(argsValueList, 0, null)
+        return ArgCombinationSpace(argsValueList)
     }
 
     /**
@@ -381,44 +505,67 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         includeInheritedMethod: Boolean = false,
         beforeAction: Runnable? = null
     ): FunTraverseUtil<T> {
-        this.includeInheritedMethod = includeInheritedMethod
+        if (this.includeInheritedMethod != includeInheritedMethod) {
+            this.includeInheritedMethod = includeInheritedMethod
+            plan = null
+        }
         beforeAction?.run()
         val allGetMethods = validMethodList ?: return this
         LoggerUtil.w(
             TAG,
             "== start invoke ${targetClz.simpleName} all public methods(${allGetMethods.size}个) ==="
         )
-        for (method in allGetMethods) {
+        usedMethodArgGroupIndexMap.clear()
+        if (coverageGuidedBudget > 0) {
+            invokeCoverageGuided(allGetMethods)
+        } else if (parallelism <= 1) {
+            forEachInvocation(allGetMethods) { method, argGroupIndex, args ->
+                invokeInner(getInvokeObj(method, targetObj), method, argGroupIndex, *args)
+                true
+            }
+        } else {
+            invokeParallel(allGetMethods)
+        }
+        return this
+    }
+
+    /**
+     * 按串行执行顺序, 逐个确定待执行的方法及其实参组合
+     *
+     * @param action 参数依次为: 方法, 实参组合序号(无形参时为-1), 实参组合, 返回false时停止遍历
+     */
+    private fun forEachInvocation(
+        methodList: List<Method?>,
+        action: (method: Method, argGroupIndex: Int, args: Array<Any?>) -> Boolean
+    ) {
+        for (method in methodList) {
             val parameterTypes = method!!.parameterTypes // 形参类型列表
             val paraSize = parameterTypes.size // 形参个数
-            var invokeObj: Any? = targetObj
-            val modifiers = method.modifiers
-            if (Modifier.isStatic(modifiers)) { // 若是静态方法,则invoke时首个参数传null
-                invokeObj = null
-            }
             if (paraSize == 0) { // 无形参
-                invokeInner(invokeObj, method, -1)
+                notifyInvokePlanned(method, -1, emptyArray())
+                if (!action(method, -1, emptyArray())) {
+                    return
+                }
             } else {
-                val argGroupList = generateArgValuesGroupList(parameterTypes)
-                val argGroupSize = argGroupList!!.size // 备选形参值组合总数量
+                val argSpace = getArgCombinationSpace(method)
+                val argGroupSize = argSpace.size // 备选形参值组合总数量
 
                 // 若指定了方法对应的实参组合序号,则根据序号提取对应实参并执行
                 val methodSignature = getMethodSignature(method)
                 var argGroupIndexList = methodArgGroupIndexMap[methodSignature]
                 var argGroupIndexListSize = argGroupIndexList?.size ?: 0
 
-                // 用户未指定实参序号列表,则直接重新进行随机
+                // 用户未指定实参序号列表,则按覆盖数组生成, 或直接重新进行随机, 按需抽取指定个数的参数组合
                 if (argGroupIndexListSize == 0) {
-                    argGroupIndexList = ArrayList()
-                    for (i in 0 until argGroupSize) {
-                        argGroupIndexList.add(i)
-                    }
-                    argGroupIndexList.shuffle() // 对参数组合的序号进行随机
-                    if (maxArgValueGroupSize in 1 until argGroupSize) { // 按需截取指定个数的参数组合
-                        argGroupIndexList = argGroupIndexList.subList(0, maxArgValueGroupSize)
+                    argGroupIndexList = if (coverageStrength >= 2) {
+                        generateCoveringIndexes(argSpace)
+                    } else {
+                        val sampleSize = if (maxArgValueGroupSize in 1 until argGroupSize) maxArgValueGroupSize else -1
+                        argSpace.sampleIndexes(sampleSize)
                     }
                 }
                 argGroupIndexListSize = argGroupIndexList!!.size
+                usedMethodArgGroupIndexMap[methodSignature] = argGroupIndexList
 
                 // 根据确定的实参组合的序号列表,逐个提取实参组合,并运行方法
                 for (i in 0 until argGroupIndexListSize) {
@@ -426,14 +573,201 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
                     if (index >= argGroupSize || index < 0) {
                         continue
                     }
-                    val args = argGroupList[index]
-                    invokeInner(invokeObj, method, index, *args)
+                    val args = argSpace[index]
+                    notifyInvokePlanned(method, index, args)
+                    if (!action(method, index, args)) {
+                        return
+                    }
                 }
             }
         }
-        return this
     }
 
+    /**
+     * 反馈驱动模式执行, 参考 [setCoverageGuided]
+     */
+    private fun invokeCoverageGuided(methodList: List<Method?>) {
+        val methods = methodList.filterNotNull()
+        if (methods.isEmpty()) {
+            return
+        }
+        val arms = methods.map {
+            val parameterTypes = it.parameterTypes
+            val argSpace = if (parameterTypes.isEmpty()) null else getArgCombinationSpace(it)
+            CoverageGuidedScheduler.Arm(getMethodSignatureInner(it), argSpace)
+        }
+        val scheduler = CoverageGuidedScheduler(arms)
+
+        // 收集方法执行期间调用线程打印的日志, 不含本工具打印的日志
+        val invokeThread = Thread.currentThread()
+        val logLines = ArrayList<String>()
+        val logListener = object : LoggerUtil.ILogListener {
+            override fun onLog(logLevel: Int, tag: String, msg: String) {
+                if (Thread.currentThread() === invokeThread && tag != TAG) {
+                    logLines.add(normalizeFeature("$tag|$msg"))
+                }
+            }
+        }
+
+        val steps = ArrayList<FunTraverseMinimizer.Step>() // 已执行的调用序列
+        var firstFailure: Throwable? = null
+        LoggerUtil.addLogListener(logListener)
+        try {
+            repeat(coverageGuidedBudget) {
+                val pick = scheduler.next()
+                val method = methods[pick.armIndex]
+                val signature = arms[pick.armIndex].signature
+                val args = arms[pick.armIndex].argSpace?.get(pick.argGroupIndex) ?: emptyArray()
+                if (pick.argGroupIndex >= 0) {
+                    usedMethodArgGroupIndexMap.getOrPut(signature) { mutableListOf() }?.add(pick.argGroupIndex)
+                }
+                steps.add(FunTraverseMinimizer.Step(signature, pick.argGroupIndex))
+                notifyInvokePlanned(method, pick.argGroupIndex, args)
+
+                logLines.clear()
+                var result: Any? = null
+                var failure: Throwable? = null
+                try {
+                    result = invokeInner(getInvokeObj(method, targetObj), method, pick.argGroupIndex, *args)
+                } catch (e: RuntimeException) {
+                    failure = (e.cause as? InvocationTargetException)?.targetException ?: e.cause ?: e
+                    val buckets = crashBuckets
+                    if (buckets != null) {
+                        buckets.add(failure, ArrayList(steps))
+                    } else if (firstFailure == null) {
+                        firstFailure = e
+                    }
+                }
+
+                // 本次执行结果的特征: 异常类型及堆栈, 返回值, 日志
+                val features = ArrayList<String>(logLines.size + 1)
+                features.add(
+                    if (failure != null) "E|${FunTraverseCrashBuckets.getBucketKey(failure)}"
+                    else "R|$signature|${getResultFeature(result)}"
+                )
+                logLines.forEach { features.add("L|$it") }
+                scheduler.feedback(pick, features)
+            }
+        } finally {
+            LoggerUtil.removeLogListener(logListener)
+        }
+        LoggerUtil.w(TAG, "coverage guided invocations finished, feature count: ${scheduler.featureCount}")
+        firstFailure?.let { throw it as? RuntimeException ?: RuntimeException(it) }
+    }
+
+    // 返回值特征: 数值按符号及二进制位数分段, 其他类型使用归一化后的 toString
+    private fun getResultFeature(result: Any?): String = when (result) {
+        null -> "null"
+        is Float, is Double -> {
+            val value = (result as Number).toDouble()
+            "${result.javaClass.simpleName}|${Math.signum(value)}|${Math.getExponent(value)}"
+        }
+        is Number -> {
+            val value = result.toLong()
+            "${result.javaClass.simpleName}|${java.lang.Long.signum(value)}|${64 - java.lang.Long.numberOfLeadingZeros(Math.abs(value))}"
+        }
+        else -> "${result.javaClass.name}|${normalizeFeature(result.toString())}"
+    }
+
+    /**
+     * 根据覆盖数组生成实参组合序号列表(乱序), 参考 [setCoverageStrength]
+     */
+    private fun generateCoveringIndexes(argSpace: ArgCombinationSpace): MutableList<Int> {
+        val radixes = IntArray(argSpace.arity) { argSpace.getRadix(it) }
+        val result = CoveringArrayGenerator.generate(radixes, coverageStrength)
+            .map { argSpace.indexOf(it) }
+            .filter { it >= 0 }
+            .toMutableList()
+        result.shuffle()
+        return result
+    }
+
+    /**
+     * 在调用线程中按串行执行顺序回调 [addInvokePlannedAction] 设置的回调
+     */
+    private fun notifyInvokePlanned(method: Method, argGroupIndex: Int, args: Array<out Any?>) {
+        for (plannedAction in plannedInvokeActionSet) {
+            plannedAction.onFuncInvoke(method, null, argGroupIndex, args)
+        }
+    }
+
+    /**
+     * 使用线程池并行执行, 参考 [setParallelism]
+     * 通过信号量限制已分发但未执行完成的任务数, 调用线程在任务积压时等待
+     */
+    private fun invokeParallel(methodList: List<Method?>) {
+        val factory = targetFactory
+        val workerTarget = ThreadLocal<T>()
+        val failure = AtomicReference<Throwable?>()
+        val pendingPermits = Semaphore(parallelism * PARALLEL_PENDING_FACTOR)
+        val executor = Executors.newFixedThreadPool(parallelism)
+        try {
+            forEachInvocation(methodList) { method, argGroupIndex, args ->
+                pendingPermits.acquire()
+                executor.execute {
+                    try {
+                        if (failure.get() == null) {
+                            val target = if (factory == null) targetObj
+                            else workerTarget.get() ?: factory().also { workerTarget.set(it) }
+                            invokeInner(getInvokeObj(method, target), method, argGroupIndex, *args)
+                        }
+                    } catch (e: Throwable) {
+                        failure.compareAndSet(null, e)
+                    } finally {
+                        pendingPermits.release()
+                    }
+                }
+                failure.get() == null
+            }
+        } finally {
+            executor.shutdown()
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LoggerUtil.d(TAG, "waiting for parallel invocations to finish")
+            }
+        }
+        failure.get()?.let { throw it as? RuntimeException ?: RuntimeException(it) }
+    }
+
+    /**
+     * 在指定对象上按顺序回放调用序列, 不触发 before/after hook, 不打印日志, 不统计耗时
+     * 形参候选值与本对象的配置一致(如 [addArgTypeValue], [enableDefaultMultiArtTypeValues]), 多线程安全
+     * 未找到的方法签名或无效的实参组合序号会被跳过
+     *
+     * @param steps 调用序列, 参考 [FunTraverseMinimizer.loadSteps]
+     * @param target 待测对象, 默认为 targetObj, 多线程回放时需使用独立的对象
+     * @return 首个执行异常的步骤信息, 全部执行成功时返回null
+     */
+    @JvmOverloads
+    fun replay(steps: List<FunTraverseMinimizer.Step>, target: T = targetObj): FunTraverseMinimizer.Failure? {
+        for (i in steps.indices) {
+            val step = steps[i]
+            val method = replayMethodMap[step.signature] ?: continue
+            val args = if (method.parameterTypes.isEmpty()) {
+                emptyArray()
+            } else {
+                val argSpace = replayArgSpaceMap[method] ?: synchronized(replayArgSpaceMap) {
+                    replayArgSpaceMap.getOrPut(method) { getArgCombinationSpace(method) }
+                }
+                if (step.argGroupIndex !in 0 until argSpace.size) {
+                    continue
+                }
+                argSpace[step.argGroupIndex]
+            }
+            try {
+                method.invoke(getInvokeObj(method, target), *args)
+            } catch (e: InvocationTargetException) {
+                return FunTraverseMinimizer.Failure(i, e.targetException ?: e)
+            } catch (e: Exception) { // IllegalAccessException, IllegalArgumentException 等
+                return FunTraverseMinimizer.Failure(i, e)
+            }
+        }
+        return null
+    }
+
+    // 静态方法 invoke 时首个参数传null
+    private fun getInvokeObj(method: Method, target: Any?) =
+        if (Modifier.isStatic(method.modifiers)) null else target
+
     /**
      * 执行指定的方法
      *
@@ -442,24 +776,26 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
      * @param argGroupIndex 本次运行所使用的实参组合序号, 负数表示无效
      * @param args          本次运行所使用的的实参组合具体信息, null 表示该方法无形参列表需要传
      */
-    private fun invokeInner(obj: Any?, method: Method, argGroupIndex: Int, vararg args: Any?) {
+    private fun invokeInner(obj: Any?, method: Method, argGroupIndex: Int, vararg args: Any?): Any? {
         try {
             for (beforeFuncInvokeAction in beforeInvokeActionSet) {
                 runHookAction(beforeFuncInvokeAction, method, null, argGroupIndex, args)
             }
             val paraSize = args.size
-            val result = if (paraSize == 0) { // 无参
-                printMethodInvokeInfo(method, "_BInvokeTag0_$argGroupIndex", true, *args)
-                method.invoke(obj)
-            } else { // 有参
-                printMethodInvokeInfo(method, "_BInvokeTag1_$argGroupIndex", true, *args)
-                method.invoke(obj, *args)
+            printMethodInvokeInfo(method, "_BInvokeTag${if (paraSize == 0) 0 else 1}_$argGroupIndex", true, *args)
+            val tProfiler = profiler
+            val invocation = tProfiler?.onInvokeStart(getMethodSignatureInner(method), argGroupIndex)
+            val result = try {
+                if (paraSize == 0) method.invoke(obj) else method.invoke(obj, *args)
+            } finally {
+                invocation?.let { tProfiler.onInvokeEnd(it) }
             }
 
             for (afterFuncInvokeAction in afterInvokeActionSet) {
                 runHookAction(afterFuncInvokeAction, method, result, argGroupIndex, args)
             }
             printMethodInvokeInfo(method, result, false, *args)
+            return result
         } catch (e: IllegalAccessException) {
             // e.printStackTrace();
             for (afterFuncInvokeAction in afterInvokeActionSet) {
@@ -489,7 +825,11 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         argGroupIndex: Int,
         args: Array<out Any?>?
     ) {
-        action?.onFuncInvoke(method, returnObj, argGroupIndex, args)
+        if (parallelism <= 1) {
+            action?.onFuncInvoke(method, returnObj, argGroupIndex, args)
+        } else {
+            synchronized(hookLock) { action?.onFuncInvoke(method, returnObj, argGroupIndex, args) }
+        }
     }
 
     /**
@@ -535,45 +875,19 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
         }
     }
 
-    /**
-     * 生成各形参所有可能值的组合列表
-     * 每个元素都是一组可用参数
-     */
-    private fun combination(
-        srcDataList: List<Array<Any?>>,
-        index: Int,
-        resultList: List<Array<Any?>>?
-    ): List<Array<Any?>>? {
-        if (index == srcDataList.size) {
-            return resultList
-        }
-        val resultList0 = mutableListOf<Array<Any?>>()
-        if (index == 0) {
-            val objArr = srcDataList[0]
-            for (obj in objArr) {
-                resultList0.add(arrayOf(obj))
-            }
-        } else {
-            val objArr = srcDataList[index]
-            for (objArr0 in resultList!!) {
-                for (obj in objArr) {
-                    //复制数组并扩充新元素
-                    val objArrCopy = arrayOfNulls<Any>(objArr0.size + 1)
-                    System.arraycopy(objArr0, 0, objArrCopy, 0, objArr0.size)
-                    objArrCopy[objArrCopy.size - 1] = obj
-
-                    //追加到结果集
-                    resultList0.add(objArrCopy)
-                }
-            }
-        }
-        return combination(srcDataList, index + 1, resultList0)
-    }
-
     companion object {
         private const val TAG = "FuncTraverseUtil"
 
+        /**
+         * 并行执行时, 每个线程最多积压的任务数, 参考 [setParallelism]
+         */
+        const val PARALLEL_PENDING_FACTOR = 4
+
         // 内置的形参默认值信息, 默认list只有一个元素
+        // 内置形参值的版本, 每次修改后递增, 参考 FunTraversePlan.ArgSpaceKey
+        @Volatile
+        private var defaultArgTypeValueVersion = 0
+
         private var defaultArgTypeValueMap: HashMap<Class<*>?, MutableList<Any?>?>? = null
 
         /**
@@ -625,31 +939,44 @@ class FunTraverseUtil<T> private constructor(private val targetObj: T) {
             defaultArgTypeValueMap?.let {
                 addTypeValue(it, typeClz, *values)
             }
+            defaultArgTypeValueVersion++ // 内置形参值已变化, 缓存的形参值组合空间失效
         }
 
+        // 特征归一化: 去除对象hash及数字, 避免每次执行均产生新特征
+        private val FEATURE_HASH_PATTERN = Pattern.compile("@[0-9a-fA-F]+")
+        private val FEATURE_DIGIT_PATTERN = Pattern.compile("[0-9]+")
+        private const val MAX_FEATURE_LENGTH = 128
+
+        private fun normalizeFeature(msg: String): String {
+            val str = FEATURE_DIGIT_PATTERN.matcher(FEATURE_HASH_PATTERN.matcher(msg).replaceAll("@")).replaceAll("#")
+            return if (str.length > MAX_FEATURE_LENGTH) str.substring(0, MAX_FEATURE_LENGTH) else str
+        }
+
+        /**
+         * 获取方法签名, 格式为 [static_]methodName([para1,para2...])_returnType
+         * 结果缓存在方法所在类的反射元数据中, 多个实例及多线程共用
+         */
         fun getMethodSignature(method: Method?): String {
             if (method == null) {
                 return ""
             }
-            // 返回类型名
-            val returnTypeName = method.returnType.simpleName
-            // 获取形参信息字符串
-            val parameterTypes = method.parameterTypes // 形参类型列表
-            // val paraSize = parameterTypes.size // 形参个数
-            val sbParaInfo = StringBuilder(30)
-            sbParaInfo.append("(")
-            for (parameterType in parameterTypes) {
-                sbParaInfo.append(parameterType.simpleName).append(",")
+            return ReflectMetaCache.getClassMeta(method.declaringClass).methodSignatureMap.getOrPut(method) {
+                val sb = StringBuilder(50)
+                // 静态方法标志位判断
+                if (Modifier.STATIC and method.modifiers != 0) {
+                    sb.append("static_")
+                }
+                sb.append(method.name).append("(")
+                method.parameterTypes.forEachIndexed { index, parameterType ->
+                    if (index > 0) {
+                        sb.append(",")
+                    }
+                    sb.append(parameterType.simpleName)
+                }
+                // 返回类型名
+                sb.append(")_").append(method.returnType.simpleName)
+                sb.toString()
             }
-            sbParaInfo.append(")")
-            val paraInfoStr = sbParaInfo.toString().replace(",)", ")")
-
-            // 静态方法标志位判断
-            val modifiers = method.modifiers
-            val staticFlag = if (Modifier.STATIC and modifiers != 0) "static_" else ""
-
-            // 拼接生成方法签名字符串,格式为 [static] methodName([para1,para2...]):returnType
-            return "$staticFlag${method.name}${paraInfoStr}_$returnTypeName"
         }
 
         /**
@@ -0,0 +1,15 @@
+package org.lynxz.utils.reflect
+
+/**
+ * 标记需要在编译期生成实现类的 observer 接口或抽象类
+ * 编译时由 version 插件中的 ObserverProxyTransform 为其生成名为 "类名$GENERATED_PROXY_SUFFIX" 的实现类
+ * [ProxyUtil] 创建接口实例时优先使用该实现类, 不存在时再使用动态代理 [java.lang.reflect.Proxy]
+ * 抽象类无法使用动态代理, 仅能通过该实现类创建实例
+ * 生成类会实现从父类及父接口继承的抽象方法, 如: abstract class BaseObserver : ICallback
+ * 限制:
+ * 1. 抽象类需有非private的无参构造方法, 且不能继承其他包中包内可见的抽象方法
+ * 2. 非final的普通类不生成子类, [ProxyUtil] 直接通过其构造方法创建实例
+ */
+@Target(AnnotationTarget.CLASS)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class GenerateProxy
@@ -0,0 +1,22 @@
+package org.lynxz.utils.reflect
+
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+
+/**
+ * 编译期生成的接口实现类(参考 [GenerateProxy])会额外实现本接口
+ * 生成类的构造方法为: (InvocationHandler), 接口方法被调用时转发给该 handler, 与动态代理行为一致
+ */
+interface IGeneratedProxy {
+    /**
+     * 直接(非反射)调用 target 的指定接口方法, 若 method 不属于生成类对应的接口, 则退化为反射调用
+     *
+     * @param target 接口实现类对象
+     * @param method 接口方法, 需为生成类传给 InvocationHandler 的同一 Method 对象才能直接调用
+     * @param args 方法实参, 无参时可为null
+     * @return 方法返回值, 基本类型会自动装箱, void方法返回null
+     * @throws InvocationTargetException 被调用方法抛出异常时, 与 Method.invoke 一致
+     */
+    @Throws(InvocationTargetException::class, IllegalAccessException::class)
+    fun invokeDirect(target: Any, method: Method, args: Array<out Any?>?): Any?
+}
@@ -0,0 +1,96 @@
+package org.lynxz.utils.reflect
+
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+
+/**
+ * 对象属性读取器, 每个类仅创建一次(参考 [ReflectUtil.getObjectReader]), 可重复用于读取/修改该类对象的属性值
+ * 属性列表及其可访问性在创建时确定, 读取时无需重复查找属性及设置 isAccessible
+ * 1. 读取所有属性到 map: [read]
+ * 2. 读取所有属性到数组(下标与 [accessors] 一致): [readTo]
+ * 3. 读写单个属性: [getAccessor]
+ *
+ * P.S. MethodHandle 需要 android 8.0(API 26) 及以上版本, 因此使用已设置为可访问的 Field
+ */
+class ObjectReader internal constructor(fields: Array<Field>) {
+
+    /**
+     * 单个属性的读写器
+     */
+    class FieldAccessor(val field: Field) {
+        val name: String = field.name
+        val type: Class<*> = field.type
+        val isStatic = Modifier.isStatic(field.modifiers)
+
+        init {
+            try {
+                field.isAccessible = true
+            } catch (e: SecurityException) {
+                e.printStackTrace()
+            }
+        }
+
+        /**
+         * 读取属性值, 静态属性忽略 obj
+         */
+        fun get(obj: Any?): Any? = field.get(if (isStatic) null else obj)
+
+        /**
+         * 修改属性值, 静态属性忽略 obj
+         */
+        fun set(obj: Any?, value: Any?) = field.set(if (isStatic) null else obj, value)
+    }
+
+    val accessors: Array<FieldAccessor> = Array(fields.size) { FieldAccessor(fields[it]) }
+
+    // 属性名 -> 读写器, 存在同名属性(如父类同名public属性)时以后者为准
+    private val accessorMap: Map<String, FieldAccessor> = accessors.associateBy { it.name }
+
+    // 属性总数
+    val size = accessors.size
+
+    /**
+     * 获取指定属性的读写器, 不存在时返回null
+     */
+    fun getAccessor(name: String) = accessorMap[name]
+
+    /**
+     * 读取所有属性值到 out 中
+     *
+     * @param obj 待读取的对象, 为null时仅读取静态属性
+     * @param out 输出结果, key-属性名 value-属性值
+     */
+    @JvmOverloads
+    fun read(obj: Any?, out: MutableMap<String, Any?> = HashMap(size * 4 / 3 + 1)): MutableMap<String, Any?> {
+        for (accessor in accessors) {
+            if (obj == null && !accessor.isStatic) {
+                continue
+            }
+            try {
+                out[accessor.name] = accessor.get(obj)
+            } catch (ignore: IllegalAccessException) {
+            }
+        }
+        return out
+    }
+
+    /**
+     * 读取所有属性值到数组中, 下标与 [accessors] 一致
+     *
+     * @param obj 待读取的对象, 为null时仅读取静态属性, 非静态属性对应位置填充null
+     * @param out 输出结果, 长度需不小于 [size], 可复用
+     */
+    @JvmOverloads
+    fun readTo(obj: Any?, out: Array<Any?> = arrayOfNulls(size)): Array<Any?> {
+        require(out.size >= size) { "out.size(${out.size}) should not be less than $size" }
+        for (i in accessors.indices) {
+            val accessor = accessors[i]
+            out[i] = if (obj == null && !accessor.isStatic) null else try {
+                accessor.get(obj)
+            } catch (ignore: IllegalAccessException) {
+                null
+            }
+        }
+        return out
+    }
+}
@@ -4,8 +4,13 @@ import org.lynxz.utils.reflect.ProxyUtil.customProxyGenerator
 import org.lynxz.utils.reflect.ProxyUtil.generateAbsClassInstance
 import org.lynxz.utils.reflect.ProxyUtil.generateDefaultImplObj
 import org.lynxz.utils.reflect.ReflectUtil.generateDefaultTypeValue
+import java.lang.reflect.Constructor
+import java.lang.reflect.InvocationHandler
 import java.lang.reflect.Method
 import java.lang.reflect.Modifier
+import java.lang.reflect.Proxy
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.concurrent.thread
 
 /**
  * @param obj 具体数据对象
@@ -16,8 +21,10 @@ data class EnabledResult<T>(var obj: T?, var enabled: Boolean = true)
 /**
  * 代理工具类
  * 1. 通过 [generateDefaultImplObj] 创建指定class的代理实现类,支持接口和普通类型
- * 2. 对于抽象类型,为了精简库大小, 由用户自行实现,可参考 [generateAbsClassInstance]
+ * 2. 对于抽象类型(包括继承了其他类或实现了接口的抽象类), 使用编译期生成的子类(参考 [GenerateProxy]), 不存在时由用户自行实现,可参考 [generateAbsClassInstance]
  * 3. 用户通过 [customProxyGenerator] 扩展可支持的实现类生成器(主要是抽象类)
+ * 4. 接口优先使用编译期生成的实现类(参考 [GenerateProxy]), 不存在时才使用动态代理: [newProxyInstance]
+ * 5. 在后台线程中预先生成代理类, 避免首次回调时在主线程生成: [warmUp]
  */
 object ProxyUtil {
     private const val TAG = "ProxyUtil"
@@ -56,6 +63,112 @@ object ProxyUtil {
 
     var customProxyGenerator: IFuncInvokeCallback.ICustomGenerator? = null
 
+    /**
+     * 编译期生成的接口实现类名后缀, 需与 version 插件中的 ObserverProxyTransform 保持一致
+     */
+    const val GENERATED_PROXY_SUFFIX = "_RecookProxy"
+
+    // 未找到编译期生成类时的占位对象, ConcurrentHashMap 不支持存储null
+    private val NO_GENERATED_PROXY = Any()
+
+    // 接口对应的编译期生成类构造方法缓存, 未找到时存储 NO_GENERATED_PROXY
+    private val generatedProxyConstructorMap: MutableMap<Class<*>, Any> = ConcurrentHashMap()
+
+    // 动态代理类构造方法缓存, key为接口列表(顺序相关, 与 Proxy.getProxyClass 一致)
+    private val proxyConstructorMap: MutableMap<List<Class<*>>, Constructor<*>> = ConcurrentHashMap()
+
+    // 接口对应的编译期生成类直接调用器缓存, 参考 IGeneratedProxy.invokeDirect
+    private val generatedProxyInvokerMap: MutableMap<Class<*>, IGeneratedProxy> = ConcurrentHashMap()
+
+    /**
+     * 获取接口/抽象类对应的编译期生成类构造方法, 不存在时返回null
+     */
+    private fun getGeneratedProxyConstructor(clz: Class<*>): Constructor<*>? {
+        val cached = generatedProxyConstructorMap.getOrPut(clz) {
+            try {
+                Class.forName("${clz.name}$GENERATED_PROXY_SUFFIX", true, clz.classLoader)
+                    .getConstructor(InvocationHandler::class.java)
+            } catch (e: ClassNotFoundException) {
+                NO_GENERATED_PROXY
+            } catch (e: NoSuchMethodException) {
+                NO_GENERATED_PROXY
+            }
+        }
+        return cached as? Constructor<*>
+    }
+
+    /**
+     * 使用编译期生成的实现类创建接口/抽象类实例
+     *
+     * @param clz 接口或抽象类类型
+     * @param handler 接口方法被调用时的处理器
+     * @return 不存在编译期生成类时返回null, 调用方可退化为动态代理
+     */
+    @JvmStatic
+    fun newGeneratedProxyInstance(clz: Class<*>, handler: InvocationHandler): Any? =
+        getGeneratedProxyConstructor(clz)?.newInstance(handler)
+
+    /**
+     * 创建实现了指定接口列表的代理对象
+     * 仅实现单个接口时, 优先使用编译期生成的实现类, 否则使用动态代理, 两者的构造方法均会缓存
+     *
+     * @param interfaces 接口列表, 不可为空
+     * @param handler 接口方法被调用时的处理器
+     */
+    @JvmStatic
+    fun newProxyInstance(interfaces: Array<Class<*>>, handler: InvocationHandler): Any {
+        if (interfaces.size == 1) {
+            newGeneratedProxyInstance(interfaces[0], handler)?.let { return it }
+        }
+        return getProxyConstructor(interfaces).newInstance(handler)
+    }
+
+    /**
+     * 获取动态代理类构造方法, 首次获取时会生成代理类
+     */
+    private fun getProxyConstructor(interfaces: Array<Class<*>>): Constructor<*> =
+        proxyConstructorMap.getOrPut(interfaces.toList()) {
+            Proxy.getProxyClass(interfaces[0].classLoader, *interfaces)
+                .getConstructor(InvocationHandler::class.java)
+        }
+
+    /**
+     * 在后台线程中预先生成接口/抽象类的实现类(编译期生成类或动态代理类), 如app启动时预热常用的observer接口
+     * 避免在主线程首次创建实例(如 [org.lynxz.utils.thread.ThreadSwitcher.generateInnerObserverImpl])时生成代理类
+     *
+     * @param classes 待预热的接口/抽象类列表, 其他类型忽略
+     * @param onFinished 预热完成后在后台线程回调, 可空
+     * @return 执行预热的后台线程
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun warmUp(classes: List<Class<*>>, onFinished: (() -> Unit)? = null): Thread =
+        thread(isDaemon = true, name = "$TAG-warmUp") {
+            classes.forEach { clz ->
+                try {
+                    when {
+                        getGeneratedProxyConstructor(clz) != null -> getGeneratedProxyInvoker(clz)
+                        clz.isInterface -> getProxyConstructor(arrayOf(clz))
+                    }
+                } catch (e: Exception) {
+                    e.printStackTrace()
+                }
+            }
+            onFinished?.invoke()
+        }
+
+    /**
+     * 获取接口对应的编译期生成类直接调用器, 用于替代 Method.invoke 反射调用该接口的实现类
+     * 不存在编译期生成类时返回null
+     */
+    @JvmStatic
+    fun getGeneratedProxyInvoker(clz: Class<*>): IGeneratedProxy? {
+        generatedProxyInvokerMap[clz]?.let { return it }
+        val invoker = newGeneratedProxyInstance(clz, RecookInvocationHandler()) as? IGeneratedProxy
+            ?: return null
+        return generatedProxyInvokerMap.getOrPut(clz) { invoker }
+    }
+
 
     /**
      * 创建某个接口/普通类/抽象类/枚举类的实例
@@ -175,15 +288,20 @@ object ProxyUtil {
 
     /**
      * 新建一个抽象类对象实例
-     * 暂不实现,若有需要,则由用户自行设置 [customProxyGenerator] 来支持, 可参考注释掉的代码通过 javassist 库来实现
+     * 使用编译期生成的子类(抽象类需添加 [GenerateProxy] 注解), 子类构造方法按类缓存
+     * 所有抽象方法(包括从父类及接口继承的)返回默认值并触发 callback, 已实现的方法保持原有逻辑
+     * 若不存在生成的子类(如无可访问的无参构造方法), 则由用户自行设置 [customProxyGenerator] 来支持, 可参考注释掉的代码通过 javassist 库来实现
      *
      * @param clz 需要创建的抽象类Class
      */
+    @Suppress("UNCHECKED_CAST")
     private fun <T> generateAbsClassInstance(
         clz: Class<T>,
         callback: IFuncInvokeCallback?
     ): T? {
-        throw IllegalArgumentException("not support abstract class")
+        val handler = RecookInvocationHandler(onMethodInvokedHook = callback)
+        return newGeneratedProxyInstance(clz, handler) as T?
+            ?: throw IllegalArgumentException("no generated subclass for abstract class, add @GenerateProxy and a non-private no-arg constructor: ${clz.name}")
 //        // 需要导入javassist库: implementation("org.javassist:javassist:3.27.0-GA")
 //        // import javassist.util.proxy.MethodHandler
 //        // import javassist.util.proxy.ProxyFactory
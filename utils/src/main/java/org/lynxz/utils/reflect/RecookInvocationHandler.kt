@@ -2,7 +2,6 @@ package org.lynxz.utils.reflect
 
 import java.lang.reflect.InvocationHandler
 import java.lang.reflect.Method
-import java.lang.reflect.Proxy
 
 /**
  * 构造方法中允许传入一个接口实现类对象,通过动态代理扩展功能
@@ -24,6 +23,7 @@ class RecookInvocationHandler(
 
     /**
      * 创建动态代理实现类对象
+     * 仅实现单个接口时, 优先使用编译期生成的实现类, 参考 [ProxyUtil.newProxyInstance]
      */
     fun newProxyInstance(): Any {
         val realObjInterfaces: Array<Class<*>>? = realObj?.javaClass?.interfaces
@@ -35,7 +35,7 @@ class RecookInvocationHandler(
         }
 
         val tInterfaces = realObjInterfaces ?: interfaceClsArray!!
-        return Proxy.newProxyInstance(tInterfaces[0].classLoader, tInterfaces, this)
+        return ProxyUtil.newProxyInstance(tInterfaces, this)
     }
 
     override fun invoke(proxy: Any, method: Method, args: Array<out Any>?): Any? {
@@ -46,7 +46,7 @@ class RecookInvocationHandler(
             "toString" -> "${proxy.javaClass.simpleName}@${hashCode()}"
             "equals" -> this == (args?.get(0) ?: false)
             "hashCode" -> objHashCode
-            else -> ReflectUtil.generateDefaultTypeValue(returnType)
+            else -> getDefaultReturnValue(method)
         }
         // 在方法触发前回调, 抛弃结果
         beforeMethodInvokeHook?.onFuncInvoke(method, retValue, -1, args)
@@ -68,4 +68,14 @@ class RecookInvocationHandler(
         }
         return retValue
     }
-}
\ No newline at end of file
+
+    companion object {
+        /**
+         * 获取方法的默认返回值, 基本类型返回 false/0 等, 其他类型返回 null
+         * 与 [ReflectUtil.generateDefaultTypeValue] 一致, 直接查表获取, 不产生新对象
+         */
+        @JvmStatic
+        fun getDefaultReturnValue(method: Method): Any? =
+            ReflectUtil.generateDefaultTypeValue(method.returnType)
+    }
+}
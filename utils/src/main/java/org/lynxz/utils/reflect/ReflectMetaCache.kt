@@ -0,0 +1,233 @@
+package org.lynxz.utils.reflect
+
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.SoftReference
+import java.lang.ref.WeakReference
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.regex.Pattern
+
+/**
+ * [ReflectUtil] 使用的反射元数据缓存, 热点反射查询仅需进行哈希查找
+ * 1. 类缓存: [getClass], 按类完整路径缓存 Class.forName 结果
+ *    未找到的结果仅缓存 [NOT_FOUND_EXPIRE_MS], 且最多缓存 [MAX_NOT_FOUND_SIZE] 个, 避免后续加载(如插件化/动态加载)的类一直查找不到
+ * 2. 方法/属性缓存: [getDeclaredMethod], [getDeclaredField], 按 (类, 名称, 参数类型) 缓存查找结果, 包括未找到的结果
+ * 3. 正则缓存: [getPattern]
+ * P.S. 类相关的缓存均使用弱引用持有 Class, 元数据使用软引用持有(元数据会强引用 Class), 不影响类卸载
+ * 元数据缓存读取时不加锁, 仅在未命中时加锁创建, 保证同一个类只创建一份元数据
+ */
+internal object ReflectMetaCache {
+
+    // 未找到时的占位对象, ConcurrentHashMap 不支持存储null
+    private val NOT_FOUND = Any()
+
+    /**
+     * Class.forName 未找到的结果的缓存时长, 单位: ms
+     */
+    const val NOT_FOUND_EXPIRE_MS = 60_000L
+
+    /**
+     * Class.forName 未找到的结果的最大缓存数量, 超出时清空所有未找到的结果
+     */
+    const val MAX_NOT_FOUND_SIZE = 256
+
+    /**
+     * Class.forName 未找到的结果
+     * @param expireTs 过期时间, 参考 [System.nanoTime]
+     */
+    private class ClassNotFound(val expireTs: Long)
+
+    /**
+     * 元数据缓存的key, 弱引用持有 Class, 按 Class 对象判断是否相等
+     * 类被回收后, key 会加入 [staleClassKeys] 队列, 在下次创建元数据时清除
+     */
+    private class ClassKey(clz: Class<*>, queue: ReferenceQueue<Class<*>>?) : WeakReference<Class<*>>(clz, queue) {
+        private val hash = System.identityHashCode(clz)
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) {
+                return true
+            }
+            val clz = get()
+            return other is ClassKey && clz != null && clz === other.get()
+        }
+
+        override fun hashCode() = hash
+    }
+
+    /**
+     * 方法查找key
+     * @param name 方法名
+     * @param parameterTypes 方法参数类型
+     */
+    class MethodKey(val name: String, val parameterTypes: Array<out Class<*>?>) {
+        private val hash = 31 * name.hashCode() + parameterTypes.contentHashCode()
+
+        override fun equals(other: Any?) = other is MethodKey
+                && name == other.name
+                && parameterTypes.contentEquals(other.parameterTypes)
+
+        override fun hashCode() = hash
+    }
+
+    /**
+     * 单个类的反射元数据
+     * declaredMethods 等数组在首次使用时获取并缓存, 避免每次调用 Class.getDeclaredMethods() 时复制数组, 外部不可修改
+     */
+    class ClassMeta(clz: Class<*>) {
+        val declaredMethods: Array<Method> by lazy { clz.declaredMethods }
+        val methods: Array<Method> by lazy { clz.methods }
+        val declaredFields: Array<Field> by lazy { clz.declaredFields }
+        val fields: Array<Field> by lazy { clz.fields }
+
+        // 本类声明的属性读取器
+        val declaredFieldsReader by lazy { ObjectReader(declaredFields) }
+
+        // 所有public属性(包括父类)读取器
+        val fieldsReader by lazy { ObjectReader(fields) }
+
+        // 沿继承链查找方法的结果, 值为 Method 或 NOT_FOUND
+        val methodMap = ConcurrentHashMap<MethodKey, Any>()
+
+        // 本类声明的属性查找结果, 值为 Field 或 NOT_FOUND
+        val declaredFieldMap = ConcurrentHashMap<String, Any>()
+
+        // 本类声明的方法对应的签名, 参考 FunTraverseUtil.getMethodSignature
+        val methodSignatureMap = ConcurrentHashMap<Method, String>()
+
+        // FunTraverseUtil 遍历计划, key 为方法过滤条件
+        val traversePlanMap = ConcurrentHashMap<FunTraversePlan.Key, FunTraversePlan>()
+    }
+
+    // 类完整路径 -> WeakReference<Class> 或 ClassNotFound
+    private val classMap = ConcurrentHashMap<String, Any>()
+
+    // classMap 中 ClassNotFound 的数量, 仅用于判断是否需要清理
+    private val notFoundCount = AtomicInteger(0)
+
+    // 使用弱引用key, 类被卸载后清除; 元数据中的 Method 等会强引用 Class, 因此value使用软引用
+    private val classMetaMap = ConcurrentHashMap<ClassKey, SoftReference<ClassMeta>>()
+
+    // 已被回收的类对应的key
+    private val staleClassKeys = ReferenceQueue<Class<*>>()
+
+    private val patternMap = ConcurrentHashMap<String, Pattern>()
+
+    /**
+     * 获取类对应的元数据
+     */
+    fun getClassMeta(clz: Class<*>): ClassMeta {
+        classMetaMap[ClassKey(clz, null)]?.get()?.let { return it }
+        synchronized(classMetaMap) {
+            // 加锁后再次检查, 避免其他线程已创建
+            classMetaMap[ClassKey(clz, null)]?.get()?.let { return it }
+            expungeStaleClassKeys()
+            return ClassMeta(clz).also { classMetaMap[ClassKey(clz, staleClassKeys)] = SoftReference(it) }
+        }
+    }
+
+    // 清除已被回收的类对应的元数据, 需在 classMetaMap 锁中调用
+    private fun expungeStaleClassKeys() {
+        var key = staleClassKeys.poll()
+        while (key != null) {
+            classMetaMap.remove(key)
+            key = staleClassKeys.poll()
+        }
+    }
+
+    /**
+     * 根据类完整路径获取类, 未找到时返回null
+     */
+    fun getClass(classFullPath: String): Class<*>? {
+        when (val cached = classMap[classFullPath]) {
+            is ClassNotFound -> if (System.nanoTime() - cached.expireTs < 0) {
+                return null
+            } else if (classMap.remove(classFullPath, cached)) {
+                notFoundCount.decrementAndGet()
+            }
+            is WeakReference<*> -> cached.get()?.let { return it as Class<*> }
+        }
+
+        val clz = try {
+            Class.forName(classFullPath)
+        } catch (e: ClassNotFoundException) {
+            null
+        }
+        if (clz != null) {
+            classMap[classFullPath] = WeakReference(clz)
+        } else {
+            if (notFoundCount.get() >= MAX_NOT_FOUND_SIZE) {
+                clearNotFoundClasses()
+            }
+            val expireTs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(NOT_FOUND_EXPIRE_MS)
+            if (classMap.put(classFullPath, ClassNotFound(expireTs)) !is ClassNotFound) {
+                notFoundCount.incrementAndGet()
+            }
+        }
+        return clz
+    }
+
+    // 清空 classMap 中所有未找到的结果
+    private fun clearNotFoundClasses() {
+        for ((path, value) in classMap) {
+            if (value is ClassNotFound && classMap.remove(path, value)) {
+                notFoundCount.decrementAndGet()
+            }
+        }
+    }
+
+    /**
+     * 从 clz 开始沿继承链查找方法(不含接口), 找到后设置为可访问
+     * 查找结果(包括未找到)均会缓存, 不通过异常判断方法是否存在
+     */
+    fun getDeclaredMethod(clz: Class<*>, name: String, parameterTypes: Array<out Class<*>?>): Method? {
+        val meta = getClassMeta(clz)
+        val key = MethodKey(name, parameterTypes.clone())
+        val cached = meta.methodMap.getOrPut(key) {
+            var tClz: Class<*>? = clz
+            var result: Method? = null
+            while (tClz != null && result == null) {
+                // 存在桥接方法时, 优先返回非桥接方法, 与 Class.getDeclaredMethod 一致
+                val candidates = getClassMeta(tClz).declaredMethods.filter {
+                    it.name == name && it.parameterTypes.contentEquals(parameterTypes)
+                }
+                result = candidates.firstOrNull { !it.isBridge } ?: candidates.firstOrNull()
+                tClz = tClz.superclass
+            }
+            result?.apply { isAccessible = true } ?: NOT_FOUND
+        }
+        return cached as? Method
+    }
+
+    /**
+     * 查找类本身声明的属性, 未找到时返回null
+     */
+    fun getDeclaredField(clz: Class<*>, name: String): Field? {
+        val meta = getClassMeta(clz)
+        val cached = meta.declaredFieldMap.getOrPut(name) {
+            meta.declaredFields.firstOrNull { it.name == name } ?: NOT_FOUND
+        }
+        return cached as? Field
+    }
+
+    /**
+     * 获取预编译的正则表达式
+     */
+    fun getPattern(regex: String): Pattern = patternMap.getOrPut(regex) { Pattern.compile(regex) }
+
+    /**
+     * 清空所有缓存
+     */
+    fun clear() {
+        classMap.clear()
+        notFoundCount.set(0)
+        synchronized(classMetaMap) {
+            classMetaMap.clear()
+            expungeStaleClassKeys()
+        }
+        patternMap.clear()
+    }
+}
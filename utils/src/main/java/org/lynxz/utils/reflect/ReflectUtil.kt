@@ -8,21 +8,24 @@ import org.lynxz.utils.reflect.ReflectUtil.getAllDeclareFieldsKVMap
 import org.lynxz.utils.reflect.ReflectUtil.getAllFieldsKVMap
 import org.lynxz.utils.reflect.ReflectUtil.getDeclaredField
 import org.lynxz.utils.reflect.ReflectUtil.getDeclaredMethod
+import org.lynxz.utils.reflect.ReflectUtil.getObjectReader
 import org.lynxz.utils.reflect.ReflectUtil.getRefClass
 import org.lynxz.utils.reflect.ReflectUtil.getSpecialMethods
 import java.lang.reflect.Field
 import java.lang.reflect.Method
 import java.util.*
-import java.util.regex.Pattern
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * 反射相关工具类
  * 根据类路径反射获取对应类: [getRefClass]
  * 获取类所有属性名及其值: [getAllFieldsKVMap], [getAllDeclareFieldsKVMap]
+ * 获取可重复使用的对象属性读取器: [getObjectReader]
  * 获取/修改指定类属性:  [getDeclaredField]
  * 获取指定的类方法: [getDeclaredMethod], [getSpecialMethods]
  * 获取指定类型对应的默认待测值值: [generateDefaultTypeValue], [generateDefaultTypeValueList]
  * 关闭 android P API兼容弹框: [closeAndroidPDialog]
+ * P.S. 类/方法/属性的查找结果均会缓存(包括未找到的结果), 参考 [ReflectMetaCache]
  */
 object ReflectUtil {
     private const val TAG = "AutoReflectUtil"
@@ -33,17 +36,8 @@ object ReflectUtil {
      * @param classFullPath 类完整路径(包含包名)
      */
     @JvmStatic
-    fun getRefClass(classFullPath: String): Class<*>? {
-        var clazz: Class<*>? = null
-        if (classFullPath.isNotBlank()) {
-            try {
-                clazz = Class.forName(classFullPath)
-            } catch (e: ClassNotFoundException) {
-                e.printStackTrace()
-            }
-        }
-        return clazz
-    }
+    fun getRefClass(classFullPath: String): Class<*>? =
+        if (classFullPath.isBlank()) null else ReflectMetaCache.getClass(classFullPath)
 
 
     /**
@@ -63,16 +57,14 @@ object ReflectUtil {
         ownObj: Any? = null,
         newValue: Any? = null
     ): Field? {
-        var field: Field? = null
-        try {
-            val clazz = getRefClass(classFullPath)
-            field = clazz?.getDeclaredField(declaredFieldName)
-            if (updateFiled) {
-                field?.isAccessible = true
-                field?.set(ownObj, newValue)
+        val clazz = getRefClass(classFullPath) ?: return null
+        val field = ReflectMetaCache.getDeclaredField(clazz, declaredFieldName)
+        if (field != null && updateFiled) {
+            try {
+                getObjectReader(clazz).getAccessor(declaredFieldName)?.set(ownObj, newValue)
+            } catch (e: Exception) {
+                e.printStackTrace()
             }
-        } catch (e: Exception) {
-            e.printStackTrace()
         }
         return field
     }
@@ -90,21 +82,8 @@ object ReflectUtil {
         declaredMethodName: String,
         vararg parameterTypes: Class<*>?
     ): Method? {
-        var tObjClz: Class<*>? = targetObjOrClass.javaClass
-        if (targetObjOrClass is Class<*>) {
-            tObjClz = targetObjOrClass
-        }
-        while (tObjClz != null) {
-            try {
-                val method = tObjClz.getDeclaredMethod(declaredMethodName, *parameterTypes)
-                method.isAccessible = true
-                return method
-            } catch (e: Exception) {
-                e.printStackTrace()
-            }
-            tObjClz = tObjClz.superclass
-        }
-        return null
+        val tObjClz = targetObjOrClass as? Class<*> ?: targetObjOrClass.javaClass
+        return ReflectMetaCache.getDeclaredMethod(tObjClz, declaredMethodName, parameterTypes)
     }
 
     /**
@@ -131,12 +110,13 @@ object ReflectUtil {
         }
         if (tObjClz != Any::class.java) {
             try {
-                val methods =
-                    if (includeInheritedMethod) tObjClz.methods else tObjClz.declaredMethods
+                val meta = ReflectMetaCache.getClassMeta(tObjClz)
+                val methods = if (includeInheritedMethod) meta.methods else meta.declaredMethods
+                val pattern = ReflectMetaCache.getPattern(methodNamePattern)
                 for (method in methods) {
                     // 匹配方法名称
                     val name = method.name
-                    if (!Pattern.matches(methodNamePattern, name)) {
+                    if (!pattern.matcher(name).matches()) {
                         continue
                     }
 
@@ -173,42 +153,41 @@ object ReflectUtil {
 
     /**
      * 反射获取指定类的所有成员变量名和值(不包含父类变量)
+     * 由于未指定对象, 仅能读取静态变量的值, 读取对象的成员变量请使用 [getObjectReader]
      *
      * @param classFullPath 类完整路径
      */
     @JvmStatic
     fun getAllDeclareFieldsKVMap(classFullPath: String) =
         HashMap<String, Any?>().apply {
-            getRefClass(classFullPath)?.let { clz ->
-                clz.declaredFields.forEach { field ->
-                    field.isAccessible = true
-                    try {
-                        put(field.name, field.get(clz))
-                    } catch (ignore: IllegalAccessException) {
-                    }
-                }
-            }
+            getRefClass(classFullPath)?.let { getObjectReader(it).read(null, this) }
         }
 
     /**
      * 反射获取指定类的所有成员变量名和值(包含从父类继承的变量)
+     * 由于未指定对象, 仅能读取静态变量的值, 读取对象的成员变量请使用 [getObjectReader]
      *
      * @param classFullPath 类完整路径
      */
     @JvmStatic
     fun getAllFieldsKVMap(classFullPath: String) =
         HashMap<String, Any?>().apply {
-            getRefClass(classFullPath)?.let { clz ->
-                clz.fields.forEach { field ->
-                    field.isAccessible = true
-                    try {
-                        put(field.name, field.get(clz))
-                    } catch (ignore: IllegalAccessException) {
-                    }
-                }
-            }
+            getRefClass(classFullPath)?.let { getObjectReader(it, false).read(null, this) }
         }
 
+    /**
+     * 获取指定类的属性读取器, 每个类仅创建一次, 适用于频繁读取同类对象的属性值
+     *
+     * @param clz 类
+     * @param declaredOnly true-仅本类声明的属性 false-所有public属性(包含从父类继承的属性)
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun getObjectReader(clz: Class<*>, declaredOnly: Boolean = true): ObjectReader {
+        val meta = ReflectMetaCache.getClassMeta(clz)
+        return if (declaredOnly) meta.declaredFieldsReader else meta.fieldsReader
+    }
+
     /**
      * 在 android P 可能会弹API兼容弹框, 每次app启动前可反射禁用掉
      * 目前在espresso用例执行前禁用, 避免弹框影响UI操作
@@ -238,12 +217,10 @@ object ReflectUtil {
 
     /**
      * 获取指定类型对应的单个默认值,基本类型返回 false 或  等 , 其他引用类型返回空
+     * 即 [generateDefaultTypeValueList] 的首个值, 直接查表获取, 无需创建列表
      */
     @JvmStatic
-    fun generateDefaultTypeValue(returnType: Class<*>): Any? {
-        val objects = generateDefaultTypeValueList(returnType)
-        return if (objects.size >= 1) objects[0] else null
-    }
+    fun generateDefaultTypeValue(returnType: Class<*>): Any? = primitiveDefaultValueMap[returnType]
 
     /**
      * 判断 obj 是否是 clz 的实例, 兼容基本类型
@@ -261,9 +238,43 @@ object ReflectUtil {
 
     /**
      * 获取指定类型对应的多个默认值,基本类型返回 false/true 或 0/-1/9999 等 , 其他引用类型返回空及默认实例
+     * 基本类型/String/枚举的结果会缓存, 每次返回缓存结果的副本
+     * 接口及普通类每次创建新实例, 不缓存; 设置了 [ProxyUtil.customProxyGenerator] 时枚举也不使用缓存
      */
     @JvmStatic
-    fun generateDefaultTypeValueList(returnType: Class<*>) =
+    fun generateDefaultTypeValueList(returnType: Class<*>): MutableList<Any?> {
+        // 基本类型及String不经过自定义生成器, 其他类型的结果可能随生成器变化
+        val cacheable = returnType.isPrimitive
+                || returnType == String::class.java
+                || (returnType.isEnum && ProxyUtil.customProxyGenerator == null)
+        if (cacheable) {
+            defaultValueListMap[returnType]?.let { return it.toMutableList() }
+        }
+
+        val list = createDefaultTypeValueList(returnType)
+        if (cacheable) {
+            defaultValueListMap.putIfAbsent(returnType, Collections.unmodifiableList(list))
+            return (defaultValueListMap[returnType] ?: list).toMutableList()
+        }
+        return list
+    }
+
+    // 基本类型的单个默认值, 与 generateDefaultTypeValueList 的首个值一致
+    private val primitiveDefaultValueMap: Map<Class<*>, Any> = mapOf(
+        Boolean::class.java to false,
+        Byte::class.java to 0.toByte(),
+        Short::class.java to 0.toShort(),
+        Char::class.java to 0.toChar(),
+        Int::class.java to 0,
+        Long::class.java to 0L,
+        Float::class.java to 0f,
+        Double::class.java to 0.0
+    )
+
+    // 各类型对应的默认值列表缓存, 不可修改
+    private val defaultValueListMap = ConcurrentHashMap<Class<*>, List<Any?>>()
+
+    private fun createDefaultTypeValueList(returnType: Class<*>) =
         mutableListOf<Any?>().apply {
             when (returnType) {
                 Void.TYPE -> add(null)
@@ -0,0 +1,10 @@
+package org.lynxz.utils.thread
+
+/**
+ * 指定 observer 回调切换线程时使用的优先级, 参考 [DispatchQueue.Priority]
+ * 可作用于 observer 接口本身(该接口所有方法均生效), 也可作用于接口方法(优先于接口上的注解)
+ * 也可以在 [ThreadSwitcher.registerOuterObserver] 时按 outerObserver 或方法另行指定, 优先级高于本注解
+ */
+@Target(AnnotationTarget.CLASS, AnnotationTarget.FUNCTION)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class CallbackPriority(val value: DispatchQueue.Priority)
@@ -0,0 +1,318 @@
+package org.lynxz.utils.thread
+
+import android.os.SystemClock
+import androidx.annotation.GuardedBy
+import java.util.ArrayDeque
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * 有界的待切换任务队列, 由 [ThreadSwitcher] 使用
+ * 所有待执行的任务(记为 envelope)先缓存在本队列中, 再由单个 drainRunnable 在目标线程中批量取出执行
+ * 1. 队列长度限制及溢出策略: [Config], [OverflowStrategy]
+ * 2. 入队: [enqueue], 按 [Priority] 分道排队, 高优先级任务优先执行, 同优先级任务按入队顺序执行
+ * 3. 清空队列: [clear]
+ * 4. 统计信息: [getStats]
+ * 5. 按回调统计排队及执行耗时: [tracer]
+ */
+class DispatchQueue(private val handler: BizHandler, config: Config = Config()) {
+
+    /**
+     * 任务优先级, 每种优先级对应一个独立的排队通道
+     */
+    enum class Priority {
+        LOW, // 如: 进度等高频且可丢弃的回调
+        NORMAL,
+        HIGH // 如: 错误, 状态变化等关键回调
+    }
+
+    /**
+     * 队列已满时的处理策略
+     */
+    enum class OverflowStrategy {
+        DROP_OLDEST, // 丢弃优先级最低的通道中最早入队的任务, 再入队新任务
+        DROP_NEWEST, // 丢弃新任务
+        BLOCK_PRODUCER, // 阻塞生产者线程, 直到队列有空位或等待超时(超时后丢弃新任务)
+        COALESCE // 与队列中相同key的最新任务合并(使用新任务替换旧任务的内容), 无可合并任务时按 DROP_OLDEST 处理; 队列未满时不合并
+    }
+
+    /**
+     * @param maxQueueSize 队列最大长度(所有优先级通道总和), 负数或0表示不限制
+     * @param overflowStrategy 队列已满时的处理策略
+     * @param blockTimeoutMs [OverflowStrategy.BLOCK_PRODUCER] 时, 生产者线程最长等待时间, 单位:ms
+     * @param drainBudgetMs 目标线程每批次执行任务的最长耗时, 超过后重新post,避免长时间阻塞目标线程(如UI绘制), 单位:ms
+     */
+    data class Config(
+        val maxQueueSize: Int = -1,
+        val overflowStrategy: OverflowStrategy = OverflowStrategy.DROP_OLDEST,
+        val blockTimeoutMs: Long = 100L,
+        val drainBudgetMs: Long = 8L
+    )
+
+    /**
+     * 队列统计信息快照
+     * @param queued 当前排队中的任务数
+     * @param maxQueued 历史最大排队任务数
+     * @param enqueued 累计入队任务数
+     * @param delivered 累计在目标线程执行的任务数
+     * @param dropped 累计因队列已满被丢弃的任务数
+     * @param coalesced 累计被合并的任务数
+     * @param avgLatencyMs 任务从入队到开始执行的平均等待时长, 单位:ms
+     * @param maxLatencyMs 任务从入队到开始执行的最大等待时长, 单位:ms
+     */
+    data class Stats(
+        val queued: Int,
+        val maxQueued: Int,
+        val enqueued: Long,
+        val delivered: Long,
+        val dropped: Long,
+        val coalesced: Long,
+        val avgLatencyMs: Double,
+        val maxLatencyMs: Double
+    )
+
+    /**
+     * 待执行的任务
+     * @param key 合并key, 非空时在 [OverflowStrategy.COALESCE] 策略下, 队列已满时可与后续相同key的任务合并
+     * @param traceKey 耗时统计维度, 参考 [DispatchTracer.TraceKey]
+     */
+    private class Envelope(
+        val key: Any?,
+        @Volatile var runnable: Runnable,
+        val enqueueNanos: Long,
+        val traceKey: DispatchTracer.TraceKey?
+    )
+
+    @Volatile
+    var config: Config = config
+
+    // 耗时统计工具, 为空时不统计执行耗时
+    @Volatile
+    var tracer: DispatchTracer? = null
+
+    private val lock = ReentrantLock()
+    private val notFull = lock.newCondition()
+
+    // 各优先级对应的排队通道, 下标为 Priority.ordinal
+    @GuardedBy("lock")
+    private val lanes = Array(Priority.values().size) { ArrayDeque<Envelope>() }
+
+    // 所有通道中的任务总数
+    @GuardedBy("lock")
+    private var pendingSize = 0
+
+    @GuardedBy("lock")
+    private val coalesceMap = HashMap<Any, Envelope>()
+
+    // drainRunnable 是否已post到目标线程, 避免重复post
+    @GuardedBy("lock")
+    private var drainScheduled = false
+
+    private val maxQueued = AtomicLong(0)
+    private val enqueued = AtomicLong(0)
+    private val delivered = AtomicLong(0)
+    private val dropped = AtomicLong(0)
+    private val coalesced = AtomicLong(0)
+    private val totalLatencyNanos = AtomicLong(0)
+    private val maxLatencyNanos = AtomicLong(0)
+
+    private val drainRunnable = Runnable { drain() }
+
+    /**
+     * 当前排队中的任务数
+     */
+    fun size() = lock.withLock { pendingSize }
+
+    /**
+     * 添加任务到队列, 并在目标线程中按优先级执行
+     * @param key 合并key, 参考 [OverflowStrategy.COALESCE], 可空
+     * @param priority 任务优先级, 默认 [Priority.NORMAL]
+     * @param traceKey 耗时统计维度, 为空时统计到 [DispatchTracer.RUNNABLE_KEY]
+     * @return true-已入队或已合并 false-被丢弃
+     */
+    @JvmOverloads
+    fun enqueue(
+        key: Any?,
+        runnable: Runnable,
+        priority: Priority = Priority.NORMAL,
+        traceKey: DispatchTracer.TraceKey? = null
+    ): Boolean {
+        val cfg = config
+        lock.withLock {
+            val maxSize = cfg.maxQueueSize
+            if (maxSize > 0 && pendingSize >= maxSize) {
+                when (cfg.overflowStrategy) {
+                    OverflowStrategy.DROP_NEWEST -> {
+                        dropped.incrementAndGet()
+                        return false
+                    }
+                    OverflowStrategy.BLOCK_PRODUCER -> {
+                        var remainNanos = TimeUnit.MILLISECONDS.toNanos(cfg.blockTimeoutMs)
+                        while (pendingSize >= maxSize && remainNanos > 0 && handler.enable) {
+                            remainNanos = notFull.awaitNanos(remainNanos)
+                        }
+                        if (pendingSize >= maxSize || !handler.enable) {
+                            dropped.incrementAndGet()
+                            return false
+                        }
+                    }
+                    OverflowStrategy.COALESCE -> {
+                        val existEnvelope = key?.let { coalesceMap[it] }
+                        if (existEnvelope != null) {
+                            existEnvelope.runnable = runnable
+                            coalesced.incrementAndGet()
+                            return true
+                        }
+                        pollOldestOfLowestLane()?.let { removeCoalesceKey(it) }
+                        dropped.incrementAndGet()
+                    }
+                    OverflowStrategy.DROP_OLDEST -> {
+                        pollOldestOfLowestLane()?.let { removeCoalesceKey(it) }
+                        dropped.incrementAndGet()
+                    }
+                }
+            }
+
+            val envelope = Envelope(key, runnable, System.nanoTime(), traceKey)
+            val lane = lanes[priority.ordinal]
+            lane.addLast(envelope)
+            pendingSize++
+            if (key != null && cfg.overflowStrategy == OverflowStrategy.COALESCE) {
+                coalesceMap[key] = envelope
+            }
+
+            if (!drainScheduled) {
+                drainScheduled = handler.post(drainRunnable)
+                if (!drainScheduled) { // handler 已停用,无法切换线程
+                    lane.pollLast()
+                    pendingSize--
+                    removeCoalesceKey(envelope)
+                    dropped.incrementAndGet()
+                    return false
+                }
+            }
+            enqueued.incrementAndGet()
+            updateMax(maxQueued, pendingSize.toLong())
+            return true
+        }
+    }
+
+    /**
+     * 清空队列中未执行的任务, 并唤醒被阻塞的生产者线程
+     */
+    fun clear() {
+        lock.withLock {
+            lanes.forEach { it.clear() }
+            pendingSize = 0
+            coalesceMap.clear()
+            drainScheduled = false
+            notFull.signalAll()
+        }
+        handler.removeCallbacks(drainRunnable)
+    }
+
+    /**
+     * 获取队列统计信息快照
+     */
+    fun getStats(): Stats {
+        val deliveredCount = delivered.get()
+        val avgLatencyNanos =
+            if (deliveredCount == 0L) 0.0 else totalLatencyNanos.get().toDouble() / deliveredCount
+        return Stats(
+            queued = size(),
+            maxQueued = maxQueued.get().toInt(),
+            enqueued = enqueued.get(),
+            delivered = deliveredCount,
+            dropped = dropped.get(),
+            coalesced = coalesced.get(),
+            avgLatencyMs = avgLatencyNanos / NANOS_PER_MS,
+            maxLatencyMs = maxLatencyNanos.get().toDouble() / NANOS_PER_MS
+        )
+    }
+
+    /**
+     * 在目标线程中执行, 每次取出优先级最高的任务执行, 超过 [Config.drainBudgetMs] 后重新post剩余任务
+     */
+    private fun drain() {
+        val deadline = SystemClock.uptimeMillis() + config.drainBudgetMs
+        while (true) {
+            val envelope = lock.withLock {
+                val first = pollFirstOfHighestLane()
+                if (first == null) {
+                    drainScheduled = false
+                } else {
+                    removeCoalesceKey(first)
+                    notFull.signalAll()
+                }
+                first
+            } ?: return
+
+            val dequeueNanos = System.nanoTime()
+            val latencyNanos = dequeueNanos - envelope.enqueueNanos
+            totalLatencyNanos.addAndGet(latencyNanos)
+            updateMax(maxLatencyNanos, latencyNanos)
+            delivered.incrementAndGet()
+
+            try {
+                envelope.runnable.run()
+            } catch (e: Throwable) {
+                rescheduleIfNecessary() // 避免异常导致剩余任务无法执行
+                throw e
+            }
+            tracer?.record(envelope.traceKey, latencyNanos, System.nanoTime() - dequeueNanos)
+
+            if (SystemClock.uptimeMillis() >= deadline) {
+                rescheduleIfNecessary()
+                return
+            }
+        }
+    }
+
+    private fun rescheduleIfNecessary() {
+        lock.withLock {
+            drainScheduled = pendingSize > 0 && handler.post(drainRunnable)
+        }
+    }
+
+    @GuardedBy("lock")
+    private fun pollFirstOfHighestLane(): Envelope? {
+        for (i in lanes.indices.reversed()) {
+            val envelope = lanes[i].pollFirst()
+            if (envelope != null) {
+                pendingSize--
+                return envelope
+            }
+        }
+        return null
+    }
+
+    @GuardedBy("lock")
+    private fun pollOldestOfLowestLane(): Envelope? {
+        for (lane in lanes) {
+            val envelope = lane.pollFirst()
+            if (envelope != null) {
+                pendingSize--
+                return envelope
+            }
+        }
+        return null
+    }
+
+    @GuardedBy("lock")
+    private fun removeCoalesceKey(envelope: Envelope) {
+        envelope.key?.let { coalesceMap.remove(it, envelope) }
+    }
+
+    private fun updateMax(target: AtomicLong, value: Long) {
+        var cur = target.get()
+        while (value > cur && !target.compareAndSet(cur, value)) {
+            cur = target.get()
+        }
+    }
+
+    companion object {
+        private const val NANOS_PER_MS = 1_000_000.0
+    }
+}
@@ -0,0 +1,219 @@
+package org.lynxz.utils.thread
+
+import org.lynxz.utils.FileUtil
+import java.text.SimpleDateFormat
+import java.util.ArrayDeque
+import java.util.Date
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * [ThreadSwitcher] 回调耗时统计工具
+ * 记录每个回调(envelope)从入队到开始执行的排队时长, 以及在目标线程中的执行时长
+ * 1. 按 (observer类型, 方法名, 形参类型) 分别统计直方图, 重载方法分开统计: [getTraceInfo]
+ * 2. 记录超过阈值的慢回调: [getSlowRecords]
+ * 3. 注册额外的实时指标, 如正在执行的回调数: [registerGauge]
+ * 4. 导出报告: [generateReport], [exportReport]
+ *
+ * @param slowThresholdMs 排队时长+执行时长超过该值时记录为慢回调, 单位:ms
+ * @param maxSlowRecordSize 最多保留的慢回调记录条数, 超出后丢弃最早的记录
+ */
+class DispatchTracer(
+    private val slowThresholdMs: Long = 16L,
+    private val maxSlowRecordSize: Int = 100
+) {
+
+    /**
+     * 统计维度: observer类型 + 方法名 + 形参类型列表
+     */
+    data class TraceKey @JvmOverloads constructor(
+        val observerClz: Class<*>,
+        val methodName: String,
+        val parameterTypes: List<Class<*>> = emptyList()
+    ) {
+        override fun toString() =
+            "${observerClz.simpleName}#$methodName(${parameterTypes.joinToString(",") { it.simpleName }})"
+    }
+
+    /**
+     * 慢回调记录
+     * @param timestamp 回调执行完成时的时间戳
+     */
+    data class SlowRecord(
+        val key: TraceKey?,
+        val waitMs: Double,
+        val execMs: Double,
+        val timestamp: Long
+    )
+
+    /**
+     * 耗时直方图, 按2的幂次划分桶, 单位:us
+     * 第i个桶表示耗时在 [2^(i-1), 2^i) us 区间, 第0个桶表示耗时小于1us
+     */
+    class LatencyHistogram {
+        private val buckets = AtomicLongArray(BUCKET_SIZE)
+        private val count = AtomicLong(0)
+        private val sumNanos = AtomicLong(0)
+        private val maxNanos = AtomicLong(0)
+
+        fun record(nanos: Long) {
+            val micros = nanos / 1000
+            val index = if (micros <= 0) 0
+            else minOf(64 - java.lang.Long.numberOfLeadingZeros(micros), BUCKET_SIZE - 1)
+            buckets.incrementAndGet(index)
+            count.incrementAndGet()
+            sumNanos.addAndGet(nanos)
+            var cur = maxNanos.get()
+            while (nanos > cur && !maxNanos.compareAndSet(cur, nanos)) {
+                cur = maxNanos.get()
+            }
+        }
+
+        fun count() = count.get()
+
+        fun avgMs() = if (count.get() == 0L) 0.0 else sumNanos.get().toDouble() / count.get() / NANOS_PER_MS
+
+        fun maxMs() = maxNanos.get() / NANOS_PER_MS
+
+        /**
+         * 估算百分位耗时, 返回对应桶的上边界, 单位:ms
+         * @param percentile 百分位, 取值范围: (0,1], 如: 0.99
+         */
+        fun percentileMs(percentile: Double): Double {
+            val total = count.get()
+            if (total == 0L) {
+                return 0.0
+            }
+            val threshold = Math.ceil(total * percentile).toLong()
+            var acc = 0L
+            for (i in 0 until BUCKET_SIZE) {
+                acc += buckets.get(i)
+                if (acc >= threshold) {
+                    return minOf((1L shl i) / 1000.0, maxMs())
+                }
+            }
+            return maxMs()
+        }
+
+        companion object {
+            private const val BUCKET_SIZE = 32 // 最大桶上边界约为 2^31 us
+        }
+    }
+
+    /**
+     * 单个统计维度的耗时信息
+     * @param wait 排队时长直方图
+     * @param exec 执行时长直方图
+     */
+    class TraceInfo(val wait: LatencyHistogram = LatencyHistogram(), val exec: LatencyHistogram = LatencyHistogram())
+
+    private val traceInfoMap = ConcurrentHashMap<TraceKey, TraceInfo>()
+    private val slowRecords = ArrayDeque<SlowRecord>()
+    private val gaugeMap: MutableMap<String, () -> Number> = ConcurrentHashMap()
+
+    /**
+     * 记录一次回调的耗时
+     * @param key 统计维度, 为空时表示未区分observer的普通任务
+     * @param waitNanos 排队时长, 单位:ns
+     * @param execNanos 执行时长, 单位:ns
+     */
+    fun record(key: TraceKey?, waitNanos: Long, execNanos: Long) {
+        val info = traceInfoMap.getOrPut(key ?: RUNNABLE_KEY) { TraceInfo() }
+        info.wait.record(waitNanos)
+        info.exec.record(execNanos)
+
+        val waitMs = waitNanos / NANOS_PER_MS
+        val execMs = execNanos / NANOS_PER_MS
+        if (waitMs + execMs >= slowThresholdMs) {
+            synchronized(slowRecords) {
+                slowRecords.addLast(SlowRecord(key, waitMs, execMs, System.currentTimeMillis()))
+                while (slowRecords.size > maxSlowRecordSize) {
+                    slowRecords.pollFirst()
+                }
+            }
+        }
+    }
+
+    /**
+     * 注册实时指标, 生成报告时读取其当前值
+     */
+    fun registerGauge(name: String, supplier: () -> Number): DispatchTracer {
+        gaugeMap[name] = supplier
+        return this
+    }
+
+    /**
+     * 获取各统计维度的耗时信息, 非observer回调的普通任务统一使用 [RUNNABLE_KEY]
+     */
+    fun getTraceInfo(): Map<TraceKey, TraceInfo> = HashMap(traceInfoMap)
+
+    /**
+     * 获取最近的慢回调记录, 按时间先后排序
+     */
+    fun getSlowRecords(): List<SlowRecord> = synchronized(slowRecords) { slowRecords.toList() }
+
+    /**
+     * 清空已统计的数据, 已注册的指标保留
+     */
+    fun reset() {
+        traceInfoMap.clear()
+        synchronized(slowRecords) { slowRecords.clear() }
+    }
+
+    /**
+     * 生成文本报告: 实时指标, 各方法耗时统计(按最大执行时长降序), 慢回调记录
+     */
+    fun generateReport(): String {
+        val sb = StringBuilder()
+        sb.append("== gauges ==\n")
+        gaugeMap.forEach { (name, supplier) -> sb.append(name).append("=").append(supplier()).append("\n") }
+
+        sb.append("== callbacks(key\tcount\twaitAvg/p50/p99/max\texecAvg/p50/p99/max, ms) ==\n")
+        traceInfoMap.entries
+            .sortedByDescending { it.value.exec.maxMs() }
+            .forEach { (key, info) ->
+                sb.append(key)
+                    .append("\t").append(info.exec.count())
+                    .append("\t").append(formatHistogram(info.wait))
+                    .append("\t").append(formatHistogram(info.exec))
+                    .append("\n")
+            }
+
+        sb.append("== slow callbacks(>=${slowThresholdMs}ms) ==\n")
+        val sdf = SimpleDateFormat("HH:mm:ss.SSS", Locale.CHINA)
+        getSlowRecords().forEach {
+            sb.append(sdf.format(Date(it.timestamp)))
+                .append("\t").append(it.key ?: RUNNABLE_KEY)
+                .append("\twait=").append(String.format(Locale.CHINA, "%.2f", it.waitMs))
+                .append("\texec=").append(String.format(Locale.CHINA, "%.2f", it.execMs))
+                .append("\n")
+        }
+        return sb.toString()
+    }
+
+    /**
+     * 导出报告到文件
+     * @param absFilePath 文件绝对路径
+     * @return 是否写入成功
+     */
+    fun exportReport(absFilePath: String) = FileUtil.writeToFile(generateReport(), absFilePath)
+
+    private fun formatHistogram(histogram: LatencyHistogram) = String.format(
+        Locale.CHINA,
+        "%.2f/%.2f/%.2f/%.2f",
+        histogram.avgMs(),
+        histogram.percentileMs(0.5),
+        histogram.percentileMs(0.99),
+        histogram.maxMs()
+    )
+
+    companion object {
+        private const val NANOS_PER_MS = 1_000_000.0
+
+        // 非observer回调的普通任务(如 runOnTargetThread)统一使用该key统计
+        @JvmField
+        val RUNNABLE_KEY = TraceKey(Runnable::class.java, "run")
+    }
+}
@@ -1,13 +1,13 @@
 package org.lynxz.utils.thread
 
 import android.os.Looper
-import androidx.annotation.GuardedBy
 import org.lynxz.utils.functions.RecookInfo
 import org.lynxz.utils.log.LoggerUtil
 import org.lynxz.utils.no
 import org.lynxz.utils.otherwise
 import org.lynxz.utils.reflect.EnabledResult
 import org.lynxz.utils.reflect.FunTraverseUtil
+import org.lynxz.utils.reflect.ProxyUtil
 import org.lynxz.utils.reflect.ProxyUtil.IFuncInvokeCallback
 import org.lynxz.utils.reflect.ProxyUtil.generateDefaultImplObj
 import org.lynxz.utils.reflect.ReflectUtil
@@ -18,7 +18,7 @@ import java.lang.reflect.InvocationTargetException
 import java.lang.reflect.Method
 import java.lang.reflect.Modifier
 import java.lang.reflect.ParameterizedType
-import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -37,11 +37,17 @@ import java.util.concurrent.atomic.AtomicInteger
  * 6. 在指定的线程执行runnable: [runOnTargetThread]
  * 7. 设置某种类型observer的通用过滤条件: [registerGlobalObserverFilterMethod]
  * 8. 停用转换器: [deActive]
- * 9. 外部自行实现 innerObserver 时:
+ * 9. 限制待切换任务的队列长度及溢出策略: [setQueueConfig], 获取队列统计信息: [getDispatchStats]
+ * -    回调优先级: 通过 [CallbackPriority] 注解或 [registerOuterObserver] 参数指定, 高优先级回调优先切换执行
+ * -    回调耗时统计: [enableTrace], 获取统计报告: [getDispatchTracer]
+ * 10. 外部自行实现 innerObserver 时:
  * -    a. 注册到缓存中: [addInnerObserverToCache]
  * -    b. 自行进行线程切换: [invokeOuterObserverOnTargetThread]
  */
-open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getMainLooper()) {
+open class ThreadSwitcher private constructor(
+    targetLooper: Looper = Looper.getMainLooper(),
+    queueConfig: DispatchQueue.Config = DispatchQueue.Config()
+) {
 
     /**
      * 需要回调outerObserver的方法信息
@@ -50,31 +56,39 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         val enableMethods: Set<String>? = null, // 允许回调的方法信息(可使用方法名,获取方法签名),空表示不过滤,均可回调
         val disableMethods: Set<String>? = null  // 不允许回调的方法信息(可使用方法名,获取方法签名),空表示不过滤,均不禁止
     ) {
+        // 按方法名/方法签名预先拆分, 避免每次回调时重新过滤
+        private val enableNames = enableMethods?.filter { !isMethodSigName(it) }?.toSet()
+        private val enableSigNames = enableMethods?.filter { isMethodSigName(it) }?.toSet()
+        private val disableNames = disableMethods?.filter { !isMethodSigName(it) }?.toSet()
+        private val disableSigNames = disableMethods?.filter { isMethodSigName(it) }?.toSet()
+
+        // 各方法是否可回调的结果缓存
+        private val canCallbackCache: MutableMap<Method, Boolean> = ConcurrentHashMap()
+
         /**
          * 方法是否需要回调到 outerObserver
          */
-        fun canCallback(method: Method): Boolean {
+        fun canCallback(method: Method): Boolean = canCallbackCache.getOrPut(method) {
             if (!canCallback(method.name, false)) {
-                return false
-            }
-            if (!canCallback(FunTraverseUtil.getMethodSignature(method), true)) {
-                return false
+                false
+            } else {
+                enableSigNames.isNullOrEmpty() && disableSigNames.isNullOrEmpty()
+                        || canCallback(FunTraverseUtil.getMethodSignature(method), true)
             }
-            return true
         }
 
         // 指定字符串是否表示一个方法签名
         private fun isMethodSigName(name: String) = name.contains("(") && name.contains(")")
 
         /**
-         * 指定的方法名/签名是否可回调到 outerObserver£
+         * 指定的方法名/签名是否可回调到 outerObserver
          * 需要同时满足在 [enableMethods] 并不在 [disableMethods] 中的才可回调
          * @param name 方法名或者方法签名(参考 FunTraverseUtil.getMethodSignature(...))
          * @param isSigName: [name] 是否表示方法签名
          */
         fun canCallback(name: String, isSigName: Boolean): Boolean {
-            val enables = enableMethods?.filter { isSigName == isMethodSigName(it) }
-            val disables = disableMethods?.filter { isSigName == isMethodSigName(it) }
+            val enables = if (isSigName) enableSigNames else enableNames
+            val disables = if (isSigName) disableSigNames else disableNames
 
             val enableHit = if (enables.isNullOrEmpty()) true else enables.contains(name)
             val disableHit = if (disables.isNullOrEmpty()) false else disables.contains(name)
@@ -82,27 +96,122 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         }
     }
 
+    /**
+     * outerObserver 回调时使用的优先级信息
+     */
+    private data class ObserverPriorityBean(
+        val priority: DispatchQueue.Priority? = null, // outerObserver所有方法默认使用的优先级, 空表示未指定
+        val methodPriorities: Map<String, DispatchQueue.Priority>? = null // 各方法的优先级(可使用方法名,或方法签名)
+    ) {
+        private val hasSigName = methodPriorities?.keys?.any { it.contains("(") && it.contains(")") } ?: false
+
+        /**
+         * 获取指定方法的优先级, 未指定时返回null
+         */
+        fun getPriority(method: Method): DispatchQueue.Priority? {
+            val byName = methodPriorities?.get(method.name)
+            if (byName != null) {
+                return byName
+            }
+            if (hasSigName) {
+                methodPriorities?.get(FunTraverseUtil.getMethodSignature(method))?.let { return it }
+            }
+            return priority
+        }
+    }
+
     //指定线程handler
     private val targetHandler: BizHandler = BizHandler(targetLooper)
 
-    private val outerLock = Object()
+    // 待切换到目标线程执行的任务队列, 可限制长度, 避免目标线程卡顿时无限堆积
+    private val dispatchQueue = DispatchQueue(targetHandler, queueConfig)
 
-    // 外部注入的观察者,运行在外部指定的线程
-    @GuardedBy("outerLock")
-    private val outerObserverMap: MutableMap<Class<*>, MutableSet<Any>?> = mutableMapOf()
+    /**
+     * outerObserver 相关注册信息的不可变快照
+     * 注册/反注册时(写操作较少)复制生成新快照并整体替换, sdk回调线程读取时(读操作频繁)无需加锁
+     * 按类型查询的结果缓存在快照内部, 快照被替换后自动失效
+     */
+    private class ObserverRegistry(
+        // 外部注入的观察者,运行在外部指定的线程
+        val outerObserverMap: Map<Class<*>, Set<Any>> = emptyMap(),
+        // 每个outerObserver允许回调的方法信息,若不存在,则表示不做过滤, 所有方法均回调
+        val outerObserverFilterMap: Map<Any, MethodFilterBean> = emptyMap(),
+        // 每个outerObserver注册时指定的回调优先级
+        val outerObserverPriorityMap: Map<Any, ObserverPriorityBean> = emptyMap(),
+        // 每种 Observer 通用的禁止回调的方法信息
+        // 过滤顺序: globalObserverFilterMap -> outerObserverFilterMap 二者均允许回调的时候才会回调
+        // 使用场景: 测试时,临时禁用某些接口回调ui层,等效于禁用了后续的逻辑
+        val globalObserverFilterMap: Map<Class<*>, MethodFilterBean> = emptyMap()
+    ) {
+        private val outerObserverCache: MutableMap<Class<*>, Set<Any>> = ConcurrentHashMap()
+        private val globalFilterCache: MutableMap<Class<*>, Set<MethodFilterBean>> = ConcurrentHashMap()
 
-    // 每个outerObserver允许回调的方法信息,若对应的value为null,则表示不做过滤, 所有方法均回调
-    @GuardedBy("outerLock")
-    private val outerObserverFilterMap: MutableMap<Any, MethodFilterBean?> = mutableMapOf()
+        /**
+         * 获取注册类型为 observerClz 或其父类型的所有 outerObserver
+         */
+        fun getOuterObservers(observerClz: Class<*>): Set<Any> =
+            outerObserverCache.getOrPut(observerClz) {
+                val result = LinkedHashSet<Any>()
+                outerObserverMap.forEach {
+                    if (it.key == observerClz || it.key.isAssignableFrom(observerClz)) {
+                        result.addAll(it.value)
+                    }
+                }
+                result
+            }
 
-    // 每种 Observer 通用的禁止回调的方法信息
-    // 过滤顺序: globalObserverFilterMap -> outerObserverFilterMap 二者均允许回调的时候才会回调
-    // 使用场景: 测试时,临时禁用某些接口回调ui层,等效于禁用了后续的逻辑
-    @GuardedBy("outerLock")
-    private val globalObserverFilterMap: MutableMap<Class<*>, MethodFilterBean> = mutableMapOf()
+        /**
+         * 获取 observerClz 或其父类型的全局过滤信息
+         */
+        fun getGlobalFilters(observerClz: Class<*>): Set<MethodFilterBean> =
+            globalFilterCache.getOrPut(observerClz) {
+                val result = LinkedHashSet<MethodFilterBean>()
+                globalObserverFilterMap.forEach {
+                    if (it.key == observerClz || it.key.isAssignableFrom(observerClz)) {
+                        result.add(it.value)
+                    }
+                }
+                result
+            }
+
+        /**
+         * outerObserver 的指定方法是否允许回调, 需同时满足全局过滤条件及其自身的过滤条件
+         */
+        fun canCallback(outerObserver: Any, method: Method): Boolean {
+            if (globalObserverFilterMap.isNotEmpty()) {
+                getGlobalFilters(outerObserver.javaClass).forEach {
+                    if (!it.canCallback(method)) {
+                        return false
+                    }
+                }
+            }
+            return outerObserverFilterMap[outerObserver]?.canCallback(method) != false
+        }
+
+        fun copy(
+            outerObserverMap: Map<Class<*>, Set<Any>> = this.outerObserverMap,
+            outerObserverFilterMap: Map<Any, MethodFilterBean> = this.outerObserverFilterMap,
+            outerObserverPriorityMap: Map<Any, ObserverPriorityBean> = this.outerObserverPriorityMap,
+            globalObserverFilterMap: Map<Class<*>, MethodFilterBean> = this.globalObserverFilterMap
+        ) = ObserverRegistry(
+            outerObserverMap,
+            outerObserverFilterMap,
+            outerObserverPriorityMap,
+            globalObserverFilterMap
+        )
+    }
+
+    // 仅用于串行化写操作, 读操作直接读取 registry 快照
+    private val outerLock = Object()
+
+    @Volatile
+    private var registry = ObserverRegistry()
+
+    // 接口方法上通过 CallbackPriority 注解指定的优先级缓存
+    private val annotationPriorityMap: MutableMap<Method, DispatchQueue.Priority> = ConcurrentHashMap()
 
     // 内部生成的观察者,运行在sdk库回调线程
-    private val innerObserverMap: MutableMap<String, Any> = mutableMapOf()
+    private val innerObserverMap: MutableMap<String, Any> = ConcurrentHashMap()
 
     // 正在运行的Runnable个数
     private val activeRunnableCount = AtomicInteger(0)
@@ -115,6 +224,39 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
      */
     fun getActiveRunnableCount() = activeRunnableCount.get()
 
+    /**
+     * 设置待切换任务队列的长度限制及溢出策略, 对后续入队的任务生效
+     */
+    fun setQueueConfig(config: DispatchQueue.Config) {
+        dispatchQueue.config = config
+    }
+
+    /**
+     * 获取待切换任务队列的统计信息: 排队数, 已执行数, 丢弃数, 等待时长等
+     */
+    fun getDispatchStats() = dispatchQueue.getStats()
+
+    /**
+     * 启用/停用回调耗时统计: 记录各 (observer类型, 方法) 的排队时长及执行时长, 以及慢回调
+     * 默认不启用
+     * @param slowThresholdMs 排队时长+执行时长超过该值时记录为慢回调, 单位:ms
+     * @return 启用时返回耗时统计工具, 停用时返回null
+     */
+    @JvmOverloads
+    fun enableTrace(enable: Boolean = true, slowThresholdMs: Long = 16L): DispatchTracer? {
+        dispatchQueue.tracer = if (enable) {
+            DispatchTracer(slowThresholdMs)
+                .registerGauge("activeRunnableCount") { activeRunnableCount.get() }
+                .registerGauge("queued") { dispatchQueue.size() }
+        } else null
+        return dispatchQueue.tracer
+    }
+
+    /**
+     * 获取回调耗时统计工具, 未启用时返回null, 参考 [enableTrace]
+     */
+    fun getDispatchTracer() = dispatchQueue.tracer
+
     /**
      * 启用转换器
      * */
@@ -129,6 +271,7 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
     fun deActive() {
         isActive.set(false)
         targetHandler.stop()
+        dispatchQueue.clear()
         LoggerUtil.w(TAG, "deActive end:$this,activeRunnableCount=${activeRunnableCount.get()}")
     }
 
@@ -141,9 +284,7 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         deActive()
         innerObserverMap.clear()
         synchronized(outerLock) {
-            outerObserverMap.clear()
-            outerObserverFilterMap.clear()
-            globalObserverFilterMap.clear()
+            registry = ObserverRegistry()
         }
         // activeRunnableCount.set(0)
         LoggerUtil.w(TAG, "release end:$this,activeRunnableCount=${activeRunnableCount.get()}")
@@ -157,6 +298,8 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
      * @param add true-添加observer  false-移除observer
      * @param enableCallbackMethods 允许回调的方法名,若为空,则表示不过滤
      * @param disableCallbackMethods 禁止回调的方法名,若为空,则表示不过滤
+     * @param priority 该observer所有方法切换线程时使用的优先级, 空表示使用 [CallbackPriority] 注解值或默认值
+     * @param methodPriorities 该observer各方法切换线程时使用的优先级(key可使用方法名,或方法签名), 优先于 [priority]
      */
     @JvmOverloads
     fun <O : Any> registerOuterObserver(
@@ -164,21 +307,34 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         clz: Class<out O> = observer.javaClass,
         add: Boolean = true,
         enableCallbackMethods: Set<String>? = null,
-        disableCallbackMethods: Set<String>? = null
+        disableCallbackMethods: Set<String>? = null,
+        priority: DispatchQueue.Priority? = null,
+        methodPriorities: Map<String, DispatchQueue.Priority>? = null
     ): Boolean {
         synchronized(outerLock) {
-            val set = outerObserverMap[clz] ?: CopyOnWriteArraySet()
-            outerObserverMap[clz] = set
-            return if (add) {
+            val old = registry
+            val set = LinkedHashSet(old.outerObserverMap[clz] ?: emptySet())
+            val filterMap = HashMap(old.outerObserverFilterMap)
+            val priorityMap = HashMap(old.outerObserverPriorityMap)
+            val result = if (add) {
                 if (enableCallbackMethods != null || disableCallbackMethods != null) {
-                    outerObserverFilterMap[observer] =
-                        MethodFilterBean(enableCallbackMethods, disableCallbackMethods)
+                    filterMap[observer] = MethodFilterBean(enableCallbackMethods, disableCallbackMethods)
+                }
+                if (priority != null || methodPriorities != null) {
+                    priorityMap[observer] = ObserverPriorityBean(priority, methodPriorities)
                 }
                 set.add(observer)
             } else {
-                outerObserverFilterMap.remove(observer)
+                filterMap.remove(observer)
+                priorityMap.remove(observer)
                 set.isEmpty() || !set.contains(observer) || set.remove(observer)
             }
+            registry = old.copy(
+                outerObserverMap = HashMap(old.outerObserverMap).apply { put(clz, set) },
+                outerObserverFilterMap = filterMap,
+                outerObserverPriorityMap = priorityMap
+            )
+            return result
         }
     }
 
@@ -195,12 +351,13 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         disableCallbackMethods: Set<String>? = null
     ) {
         synchronized(outerLock) {
+            val filterMap = HashMap(registry.globalObserverFilterMap)
             if (add) {
-                globalObserverFilterMap[observerClz] =
-                    MethodFilterBean(enableCallbackMethods, disableCallbackMethods)
+                filterMap[observerClz] = MethodFilterBean(enableCallbackMethods, disableCallbackMethods)
             } else {
-                globalObserverFilterMap.remove(observerClz)
+                filterMap.remove(observerClz)
             }
+            registry = registry.copy(globalObserverFilterMap = filterMap)
         }
     }
 
@@ -211,38 +368,11 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
      */
     @Suppress("UNCHECKED_CAST")
     fun <O> getOuterRegisterObserver(observerClz: Class<O>): Set<O>? {
-        if (outerObserverMap.isEmpty()) {
+        val snapshot = registry
+        if (snapshot.outerObserverMap.isEmpty()) {
             return null
         }
-
-        synchronized(outerLock) {
-            val outObservers = mutableSetOf<O>()
-            outerObserverMap.forEach {
-                if (it.key == observerClz || it.key.isAssignableFrom(observerClz)) {
-                    it.value?.forEach { ob ->
-                        outObservers.add(ob as O)
-                    }
-                }
-            }
-            return outObservers
-        }
-    }
-
-    /**
-     * 根据 Observer class类型,获取该类型或其父类型class的全局允许回调方法列表
-     */
-    private fun <O> getGlobalObserverFilterInfoByClass(observerClz: Class<O>): Set<MethodFilterBean>? {
-        if (globalObserverFilterMap.isNullOrEmpty()) return null
-        synchronized(outerLock) {
-            if (globalObserverFilterMap.isNullOrEmpty()) return null
-            val result = mutableSetOf<MethodFilterBean>()
-            globalObserverFilterMap.forEach {
-                if (it.key == observerClz || it.key.isAssignableFrom(observerClz)) {
-                    result.add(it.value)
-                }
-            }
-            return result
-        }
+        return snapshot.getOuterObservers(observerClz) as Set<O>
     }
 
     /**
@@ -290,45 +420,40 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
                 isActive.get().no { return null }  // 已停止的线程切换器无需执行
                 val finalArgs = recookArgsAction?.recook(method, args) ?: args // 对方法实参进行二次处理,如copy等
                 // 外部未注入observer时,不用抛线程
-                getOuterRegisterObserver(observerClz)?.forEach out@{ outerObserver ->
-                    // 已禁用该类型observer方法的,无需执行
-                    val globalFilters =
-                        getGlobalObserverFilterInfoByClass(outerObserver::class.java)
-                    globalFilters?.forEach {
-                        if (!it.canCallback(method)) {
-                            return@out
+                val snapshot = registry
+                val outerObservers = snapshot.getOuterObservers(observerClz)
+                if (outerObservers.isEmpty()) {
+                    return null
+                }
+
+                // sdk已在目标线程回调时, 直接触发 outerObserver, 无需创建 Runnable
+                if (!isNeedSwitch) {
+                    for (outerObserver in outerObservers) {
+                        if (snapshot.canCallback(outerObserver, method)) {
+                            invokeOuterObserver(outerObserver, method, finalArgs)
                         }
                     }
+                    return null
+                }
 
-                    val filterBean = outerObserverFilterMap[outerObserver]
-                    if (filterBean?.canCallback(method) == false) {
+                outerObservers.forEach out@{ outerObserver ->
+                    // 已禁用该类型observer方法的,无需执行
+                    if (!snapshot.canCallback(outerObserver, method)) {
                         return@out
                     }
 
                     val runnable = Runnable {
-                        isActive.get().yes {
-                            try {
-                                activeRunnableCount.incrementAndGet()
-                                // val activeRunnableCount = activeRunnableCount.incrementAndGet()
-                                // LoggerUtil.d(TAG, "obUI method start:${method.name},obUui=${obOuter.hashCode()},activeRunnableCount=$activeRunnableCount,${this.hashCode()}")
-                                when (args?.size ?: 0) {
-                                    0 -> method.invoke(outerObserver)
-                                    1 -> method.invoke(outerObserver, finalArgs!![0])
-                                    else -> method.invoke(outerObserver, finalArgs)
-                                }
-                            } catch (e: IllegalAccessException) {
-                                e.printStackTrace()
-                            } catch (e: InvocationTargetException) {
-                                e.printStackTrace()
-                            }
-                            activeRunnableCount.decrementAndGet()
-                            // val activeRunnableCount = activeRunnableCount.decrementAndGet()
-                            // LoggerUtil.d(TAG,"obUI method end:${method.name},activeRunnableCount=$activeRunnableCount,${this.hashCode()}")
-                        }
+                        isActive.get().yes { invokeOuterObserver(outerObserver, method, finalArgs) }
                     }
 
                     // LoggerUtil.d(TAG, "isNeedSwitch=$isNeedSwitch, method=${method.name}")
-                    runOnTargetThread(runnable)
+                    // 同一outerObserver的同一方法可合并, 参考 DispatchQueue.OverflowStrategy.COALESCE
+                    runOnTargetThread(
+                        Pair(outerObserver, method),
+                        getCallbackPriority(snapshot, outerObserver, method),
+                        generateTraceKey(observerClz, method),
+                        runnable
+                    )
                 }
                 return null
             }
@@ -339,6 +464,35 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         }
     }
 
+    /**
+     * 在当前线程触发 outerObserver 的指定方法, 调用方自行确保已在目标线程
+     */
+    private fun invokeOuterObserver(outerObserver: Any, method: Method, args: Array<out Any?>?) {
+        activeRunnableCount.incrementAndGet()
+        try {
+            // val activeRunnableCount = activeRunnableCount.incrementAndGet()
+            // LoggerUtil.d(TAG, "obUI method start:${method.name},obUui=${obOuter.hashCode()},activeRunnableCount=$activeRunnableCount,${this.hashCode()}")
+            // 优先使用编译期生成的实现类直接调用, 参考 GenerateProxy
+            val invoker = ProxyUtil.getGeneratedProxyInvoker(method.declaringClass)
+            if (invoker != null) {
+                invoker.invokeDirect(outerObserver, method, args)
+            } else when (args?.size ?: 0) {
+                0 -> method.invoke(outerObserver)
+                1 -> method.invoke(outerObserver, args!![0])
+                else -> method.invoke(outerObserver, *args!!)
+            }
+        } catch (e: IllegalAccessException) {
+            e.printStackTrace()
+        } catch (e: InvocationTargetException) {
+            e.printStackTrace()
+        } finally {
+            // 其他异常(如实参类型不匹配)会继续抛出, 仍需还原计数
+            activeRunnableCount.decrementAndGet()
+            // val activeRunnableCount = activeRunnableCount.decrementAndGet()
+            // LoggerUtil.d(TAG,"obUI method end:${method.name},activeRunnableCount=$activeRunnableCount,${this.hashCode()}")
+        }
+    }
+
     private fun <I> generateInterfaceImpl(
         observerClz: Class<I>,
         callback: IFuncInvokeCallback?
@@ -379,23 +533,20 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         } ?: return
 
         // 获取 outerObserver
-        val outerObservers = getOuterRegisterObserver(observerClz) ?: return
+        val snapshot = registry
+        val outerObservers = snapshot.getOuterObservers(observerClz)
 
         // 在目标线程中回调 outerObserver
         outerObservers.forEach out@{ ob ->
-            val globalFilters = getGlobalObserverFilterInfoByClass(ob!!::class.java)
-            globalFilters?.forEach {
-                if (!it.canCallback(tMethod)) {
-                    return@out
-                }
-            }
-
-            val filterBean = outerObserverFilterMap[ob]
-            if (filterBean?.canCallback(tMethod) == false) {
+            if (!snapshot.canCallback(ob, tMethod)) {
                 return@out
             }
 
-            runOnTargetThread {
+            runOnTargetThread(
+                null,
+                getCallbackPriority(snapshot, ob, tMethod),
+                generateTraceKey(observerClz, tMethod)
+            ) {
                 tMethod.invoke(ob, *args)
             }
         }
@@ -404,8 +555,45 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
     /**
      * 切换到当前switcher指定的线程中并执行
      */
-    fun runOnTargetThread(runnable: Runnable) = isActive.get().yes {
-        isNeedSwitch.yes { targetHandler.post(runnable) } otherwise { runnable.run() }
+    fun runOnTargetThread(runnable: Runnable) =
+        runOnTargetThread(null, DispatchQueue.Priority.NORMAL, null, runnable)
+
+    /**
+     * 切换到当前switcher指定的线程中并执行
+     * @param coalesceKey 合并key, 队列已满且使用 [DispatchQueue.OverflowStrategy.COALESCE] 策略时,相同key的任务会被合并
+     * @param priority 切换线程时的优先级, 高优先级任务优先执行
+     * @param traceKey 耗时统计维度, 参考 [enableTrace]
+     */
+    private fun runOnTargetThread(
+        coalesceKey: Any?,
+        priority: DispatchQueue.Priority,
+        traceKey: DispatchTracer.TraceKey?,
+        runnable: Runnable
+    ) = isActive.get().yes {
+        isNeedSwitch.yes {
+            dispatchQueue.enqueue(coalesceKey, runnable, priority, traceKey)
+        } otherwise { runnable.run() }
+    }
+
+    // 未启用耗时统计时无需创建统计维度信息
+    private fun generateTraceKey(observerClz: Class<*>, method: Method) =
+        dispatchQueue.tracer?.let { DispatchTracer.TraceKey(observerClz, method.name, method.parameterTypes.asList()) }
+
+    /**
+     * 获取 outerObserver 指定方法回调时的优先级
+     * 优先级: 注册时指定的方法优先级 > 注册时指定的observer优先级 > 方法上的注解 > 接口上的注解 > 默认值
+     */
+    private fun getCallbackPriority(
+        snapshot: ObserverRegistry,
+        outerObserver: Any,
+        method: Method
+    ): DispatchQueue.Priority {
+        snapshot.outerObserverPriorityMap[outerObserver]?.getPriority(method)?.let { return it }
+        return annotationPriorityMap.getOrPut(method) {
+            method.getAnnotation(CallbackPriority::class.java)?.value
+                ?: method.declaringClass.getAnnotation(CallbackPriority::class.java)?.value
+                ?: DispatchQueue.Priority.NORMAL
+        }
     }
 
     // 是否需要切换线程进行触发 outerObserver
@@ -436,16 +624,21 @@ open class ThreadSwitcher private constructor(targetLooper: Looper = Looper.getM
         private const val TAG = "ThreadSwitcher"
 
         // 不需要进行回调的方法,主要是动态代理额外实现的部分接口
-        private val excludeCallbackMethods = listOf("equals", "hashCode", "toString")
+        private val excludeCallbackMethods = setOf("equals", "hashCode", "toString")
 
         /**
          * 创建线程切换器
          *
          * @param targetLooper 最终要运行的线程looper
+         * @param queueConfig 待切换任务队列的长度限制及溢出策略, 默认不限制
          */
         @JvmStatic
-        fun newInstance(targetLooper: Looper = Looper.getMainLooper()): ThreadSwitcher {
-            return ThreadSwitcher(targetLooper).apply {
+        @JvmOverloads
+        fun newInstance(
+            targetLooper: Looper = Looper.getMainLooper(),
+            queueConfig: DispatchQueue.Config = DispatchQueue.Config()
+        ): ThreadSwitcher {
+            return ThreadSwitcher(targetLooper, queueConfig).apply {
                 LoggerUtil.w(TAG, "ThreadSwitcher created $targetLooper,$this")
             }
         }
@@ -0,0 +1,78 @@
+package org.lynxz.utils
+
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class FileWalkerTest {
+
+    private lateinit var root: File
+
+    /**
+     * root/a.log, root/b.txt, root/sub/c.log, root/sub/deep/d.log(10字节), root/logs/e.txt
+     * */
+    @Before
+    fun setUp() {
+        root = Files.createTempDirectory("walker").toFile()
+        File(root, "a.log").writeText("")
+        File(root, "b.txt").writeText("")
+        File(root, "sub/deep").mkdirs()
+        File(root, "sub/c.log").writeText("")
+        File(root, "sub/deep/d.log").writeText("0123456789")
+        File(root, "logs").mkdirs()
+        File(root, "logs/e.txt").writeText("")
+    }
+
+    @After
+    fun tearDown() {
+        root.deleteRecursively()
+    }
+
+    private fun names(walker: FileWalker) = walker.list().map { it.file.name }.toSet()
+
+    @Test
+    fun globTest() {
+        Assert.assertTrue(Regex(FileWalker.globToRegex("*.log")).matches("a.log"))
+        Assert.assertFalse(Regex(FileWalker.globToRegex("*.log")).matches("a.log.bak"))
+        Assert.assertTrue(Regex(FileWalker.globToRegex("?.{log,txt}")).matches("b.txt"))
+        Assert.assertFalse(Regex(FileWalker.globToRegex("?.{log,txt}")).matches("ab.txt"))
+        Assert.assertTrue(Regex(FileWalker.globToRegex("[!a]*")).matches("b.txt"))
+        Assert.assertFalse(Regex(FileWalker.globToRegex("[!a]*")).matches("a.txt"))
+    }
+
+    @Test
+    fun walkTest() {
+        for (parallelism in listOf(1, 4)) {
+            Assert.assertEquals(
+                setOf("a.log", "c.log", "d.log"),
+                names(FileWalker(root).glob("*.log").parallelism(parallelism))
+            )
+            Assert.assertEquals(setOf("a.log", "b.txt"), names(FileWalker(root).maxDepth(1).parallelism(parallelism)))
+            Assert.assertEquals(
+                setOf("a.log", "b.txt", "sub", "logs"),
+                names(FileWalker(root).maxDepth(1).includeDirectories(true).parallelism(parallelism))
+            )
+            Assert.assertEquals(setOf("d.log"), names(FileWalker(root).sizeBetween(1, 100).parallelism(parallelism)))
+        }
+        Assert.assertEquals(setOf("logs"), names(FileWalker(root).includeDirectories(true).regex("^LOG", true).maxDepth(1)))
+        Assert.assertTrue(FileWalker(root).olderThan(60_000L).list().isEmpty())
+        Assert.assertTrue(FileWalker(File(root, "a.log")).list().isEmpty()) // 非目录
+    }
+
+    @Test
+    fun deleteTest() {
+        // 满足条件的目录连同子文件一起删除
+        Assert.assertTrue(FileWalker(root).maxDepth(1).includeDirectories(true).regex("^(sub|a\\.)").delete())
+        Assert.assertEquals(setOf("b.txt", "logs", "e.txt"), names(FileWalker(root).includeDirectories(true)))
+
+        Assert.assertTrue(FileWalker(root).glob("*.txt").parallelism(2).delete())
+        Assert.assertEquals(setOf("logs"), names(FileWalker(root).includeDirectories(true)))
+
+        Assert.assertTrue(FileWalker(root).includeDirectories(true).delete())
+        Assert.assertTrue(root.exists())
+        Assert.assertEquals(0, root.list()!!.size)
+    }
+}
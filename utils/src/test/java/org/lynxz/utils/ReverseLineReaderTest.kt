@@ -0,0 +1,40 @@
+package org.lynxz.utils
+
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+
+class ReverseLineReaderTest {
+
+    private fun readReversed(content: String, blockSize: Int): List<String> {
+        val file = File.createTempFile("reverse", ".txt")
+        try {
+            file.writeText(content)
+            return ReverseLineReader(file, blockSize = blockSize).use { it.asSequence().toList() }
+        } finally {
+            file.delete()
+        }
+    }
+
+    /**
+     * 与 File.readLines 的结果顺序相反, 不受块大小影响
+     * */
+    @Test
+    fun readTest() {
+        val contents = listOf(
+            "", "\n", "a", "a\n", "a\n\n", "a\r\nbb\r\n", "line1\n中文行\n\nline4", "x".repeat(50) + "\n" + "y".repeat(30)
+        )
+        for (content in contents) {
+            val file = File.createTempFile("forward", ".txt")
+            val expected = try {
+                file.writeText(content)
+                file.readLines().reversed()
+            } finally {
+                file.delete()
+            }
+            for (blockSize in intArrayOf(1, 3, 16, 8192)) {
+                Assert.assertEquals("content=$content,blockSize=$blockSize", expected, readReversed(content, blockSize))
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.lynxz.utils.reflect
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.*
+
+class ArgCombinationSpaceTest {
+    private val space = ArgCombinationSpace(
+        listOf(arrayOf<Any?>("a", "b"), arrayOf<Any?>("x", "y", "z"))
+    )
+
+    /**
+     * 序号按笛卡尔积顺序解码, 最后一个形参变化最快
+     * */
+    @Test
+    fun getTest() {
+        Assert.assertEquals(6, space.size)
+        val all = (0 until space.size).map { space[it].joinToString("") }
+        Assert.assertEquals(listOf("ax", "ay", "az", "bx", "by", "bz"), all)
+        Assert.assertEquals(4, space.indexOf(intArrayOf(1, 1)))
+    }
+
+    @Test
+    fun sampleIndexesTest() {
+        val sample = space.sampleIndexes(4, Random(1))
+        Assert.assertEquals(4, sample.size)
+        Assert.assertEquals(4, sample.toSet().size)
+        Assert.assertTrue(sample.all { it in 0 until space.size })
+
+        Assert.assertEquals((0 until 6).toSet(), space.sampleIndexes(-1).toSet())
+    }
+
+    /**
+     * 组合数超过 Int.MAX_VALUE 时, 无需生成所有组合即可抽样
+     * */
+    @Test
+    fun hugeSpaceTest() {
+        val candidates = List(12) { Array<Any?>(10) { i -> i } }
+        val hugeSpace = ArgCombinationSpace(candidates)
+        Assert.assertEquals(Int.MAX_VALUE, hugeSpace.size)
+        val sample = hugeSpace.sampleIndexes(10)
+        Assert.assertEquals(10, sample.size)
+        Assert.assertEquals(12, hugeSpace[sample[0]].size)
+    }
+}
@@ -0,0 +1,42 @@
+package org.lynxz.utils.reflect
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.*
+
+class CoverageGuidedSchedulerTest {
+
+    /**
+     * 所有方法先各执行一次, 之后持续产出新特征的方法获得更多执行次数
+     * */
+    @Test
+    fun scheduleTest() {
+        val space = ArgCombinationSpace(listOf(arrayOf<Any?>(1, 2, 3), arrayOf<Any?>("a", "b")))
+        val arms = listOf(
+            CoverageGuidedScheduler.Arm("a()_void", null),
+            CoverageGuidedScheduler.Arm("b(int,String)_void", space),
+            CoverageGuidedScheduler.Arm("c()_void", null)
+        )
+        val scheduler = CoverageGuidedScheduler(arms, Random(1))
+
+        val counts = IntArray(arms.size)
+        var round = 0
+        repeat(100) {
+            val pick = scheduler.next()
+            if (it < arms.size) {
+                Assert.assertEquals(it, pick.armIndex)
+            }
+            if (pick.armIndex == 1) {
+                Assert.assertTrue(pick.argGroupIndex in 0 until space.size)
+            } else {
+                Assert.assertEquals(-1, pick.argGroupIndex)
+            }
+            counts[pick.armIndex]++
+            // 仅方法b每次均产出新特征
+            val feature = if (pick.armIndex == 1) "b${round++}" else "same"
+            scheduler.feedback(pick, listOf(feature))
+        }
+        Assert.assertTrue(counts[1] > counts[0] && counts[1] > counts[2])
+        Assert.assertEquals(round + 1, scheduler.featureCount)
+    }
+}
@@ -0,0 +1,34 @@
+package org.lynxz.utils.reflect
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.*
+
+class CoveringArrayGeneratorTest {
+
+    /**
+     * pairwise: 任意两个形参的候选值组合均被覆盖, 且行数远小于全部组合数
+     * */
+    @Test
+    fun pairwiseTest() {
+        val radixes = IntArray(10) { 3 }
+        val rows = CoveringArrayGenerator.generate(radixes, 2, Random(1))
+        Assert.assertTrue("rows=${rows.size}", rows.size < 40)
+
+        for (p1 in radixes.indices) {
+            for (p2 in p1 + 1 until radixes.size) {
+                val pairs = rows.map { it[p1] to it[p2] }.toSet()
+                Assert.assertEquals(radixes[p1] * radixes[p2], pairs.size)
+            }
+        }
+    }
+
+    /**
+     * 覆盖强度不小于形参个数时, 等同于全部组合
+     * */
+    @Test
+    fun fullStrengthTest() {
+        val rows = CoveringArrayGenerator.generate(intArrayOf(2, 3), 3)
+        Assert.assertEquals(6, rows.map { it.toList() }.toSet().size)
+    }
+}
@@ -0,0 +1,45 @@
+package org.lynxz.utils.reflect
+
+import org.junit.Assert
+import org.junit.Test
+import java.lang.reflect.InvocationTargetException
+
+class FunTraverseCrashBucketsTest {
+
+    private fun fail(msg: String): Nothing = throw IllegalStateException(msg)
+
+    private fun catchFailure(msg: String): Throwable = try {
+        fail(msg)
+    } catch (e: Throwable) {
+        e
+    }
+
+    /**
+     * 异常信息不同, 或被包装后, 仍属于同一分类
+     * */
+    @Test
+    fun bucketKeyTest() {
+        val key = FunTraverseCrashBuckets.getBucketKey(catchFailure("a"))
+        Assert.assertEquals(16, key.length)
+        Assert.assertEquals(key, FunTraverseCrashBuckets.getBucketKey(catchFailure("b")))
+        Assert.assertEquals(
+            key,
+            FunTraverseCrashBuckets.getBucketKey(RuntimeException(InvocationTargetException(catchFailure("c"))))
+        )
+        Assert.assertNotEquals(key, FunTraverseCrashBuckets.getBucketKey(IllegalArgumentException()))
+    }
+
+    @Test
+    fun addTest() {
+        val buckets = FunTraverseCrashBuckets()
+        val first = catchFailure("a")
+        buckets.add(first)
+        buckets.add(catchFailure("b"))
+        buckets.add(IllegalArgumentException())
+
+        val list = buckets.getBuckets()
+        Assert.assertEquals(2, list.size)
+        Assert.assertEquals(2, list[0].count())
+        Assert.assertSame(first, list[0].sample)
+    }
+}
@@ -0,0 +1,64 @@
+package org.lynxz.utils.reflect
+
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+
+class FunTraverseJournalTest {
+
+    private fun readAll(path: String) = mutableListOf<FunTraverseJournal.Record>().also { list ->
+        FunTraverseJournal.forEachRecord(path) { list.add(it) }
+    }
+
+    /**
+     * 重新打开后继续追加, 签名编号保持一致
+     * */
+    @Test
+    fun appendAndReadTest() {
+        val file = File.createTempFile("journal", ".journal").apply { delete() }
+        try {
+            FunTraverseJournal(file.absolutePath).use {
+                it.append("fun1(int)_void", 0)
+                it.append("fun1(int)_void", 3, FunTraverseJournal.STATUS_FAILED)
+                it.append("测试()_void", -1)
+            }
+            FunTraverseJournal(file.absolutePath, flushInterval = 10).use {
+                it.append("fun1(int)_void", 5)
+            }
+
+            Assert.assertEquals(
+                listOf(
+                    FunTraverseJournal.Record("fun1(int)_void", 0, FunTraverseJournal.STATUS_STARTED),
+                    FunTraverseJournal.Record("fun1(int)_void", 3, FunTraverseJournal.STATUS_FAILED),
+                    FunTraverseJournal.Record("测试()_void", -1, FunTraverseJournal.STATUS_STARTED),
+                    FunTraverseJournal.Record("fun1(int)_void", 5, FunTraverseJournal.STATUS_STARTED)
+                ),
+                readAll(file.absolutePath)
+            )
+        } finally {
+            file.delete()
+        }
+    }
+
+    /**
+     * 末尾不完整的记录被忽略, 且再次追加时被截断
+     * */
+    @Test
+    fun truncatedTailTest() {
+        val file = File.createTempFile("journal", ".journal").apply { delete() }
+        try {
+            FunTraverseJournal(file.absolutePath).use {
+                it.append("fun1()_void", -1)
+                it.append("fun1()_void", -1)
+            }
+            RandomAccessFile(file, "rw").use { it.setLength(it.length() - 3) }
+            Assert.assertEquals(1, readAll(file.absolutePath).size)
+
+            FunTraverseJournal(file.absolutePath).use { it.append("fun2()_void", -1) }
+            Assert.assertEquals(listOf("fun1()_void", "fun2()_void"), readAll(file.absolutePath).map { it.signature })
+        } finally {
+            file.delete()
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.lynxz.version
 import com.android.build.gradle.AppExtension
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.lynxz.version.transform.ObserverProxyTransform
 import org.lynxz.version.transform.TestCaseTransform
 
 class DependencyVersionPlugin : Plugin<Project> {
@@ -22,6 +23,9 @@ class DependencyVersionPlugin : Plugin<Project> {
                             caseFileName = caseFileName
                         )
                     )
+                // 为标注 GenerateProxy 的 observer 接口生成实现类
+                val appExtension = project.extensions.getByType(AppExtension::class.java)
+                appExtension.registerTransform(ObserverProxyTransform { appExtension.bootClasspath })
             } catch (e: Exception) {
                 println("DependencyVersionPlugin apply exception: $e")
             }
@@ -0,0 +1,175 @@
+package org.lynxz.version.transform
+
+import org.objectweb.asm.AnnotationVisitor
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import java.io.Closeable
+import java.io.File
+import java.util.zip.ZipFile
+
+/**
+ * 按类名读取 class 文件中的继承信息, 用于查找类从父类及接口继承的抽象方法
+ * 查找顺序: [classpath] 中的目录及jar包 -> 插件自身的 ClassLoader(JDK中的类)
+ *
+ * @param classpath transform 的输入目录及jar包, 以及 bootClasspath(如 android.jar)
+ */
+class ClassHierarchy(classpath: List<File>) : Closeable {
+
+    /**
+     * class 文件中的类信息
+     * @param methods 非private的实例方法, 不含构造方法
+     * @param annotated 是否标注了 GenerateProxy 注解
+     * @param hasDefaultConstructor 是否有非private的无参构造方法
+     */
+    class ClassInfo(
+        val name: String,
+        val access: Int,
+        val superName: String?,
+        val interfaces: Array<out String>,
+        val methods: List<ObserverProxyGenerator.MethodInfo>,
+        val annotated: Boolean,
+        val hasDefaultConstructor: Boolean
+    ) {
+        val isInterface = access and Opcodes.ACC_INTERFACE != 0
+    }
+
+    private val dirs = classpath.filter { it.isDirectory }
+    private val jars = classpath.filter { it.isFile && it.name.endsWith(".jar") }.mapNotNull {
+        try {
+            ZipFile(it)
+        } catch (e: Exception) {
+            e.printStackTrace()
+            null
+        }
+    }
+
+    // 类名 -> 类信息, 未找到时为null
+    private val cache = HashMap<String, ClassInfo?>()
+
+    /**
+     * 根据类名获取类信息, 未找到时返回null
+     * @param name 类完整名称, 如: java/lang/Object
+     */
+    fun get(name: String): ClassInfo? {
+        if (cache.containsKey(name)) {
+            return cache[name]
+        }
+        return readBytes(name)?.let { read(it) }.also { cache[name] = it }
+    }
+
+    /**
+     * 获取 target 实例化时需实现的抽象方法: 本类及父类中声明的抽象方法, 以及未被实现的接口(含父接口)方法
+     * 父类中已实现的方法及接口的默认方法视为已实现
+     *
+     * @return 父类或接口的 class 文件不存在时返回null
+     */
+    fun collectAbstractMethods(target: ClassInfo): List<ObserverProxyGenerator.MethodInfo>? {
+        // 方法名+签名 -> 沿继承链(由子类到父类)首次声明的方法, 接口本身不遍历 Object
+        val declared = LinkedHashMap<String, ObserverProxyGenerator.MethodInfo>()
+        val interfaces = LinkedHashSet<String>()
+        var info: ClassInfo = target
+        while (true) {
+            info.methods.forEach { declared.putIfAbsent(it.name + it.desc, it) }
+            interfaces.addAll(info.interfaces)
+            val superName = info.superName
+            if (info.isInterface || superName == null) {
+                break
+            }
+            info = get(superName) ?: return null
+        }
+
+        // 广度优先遍历所有父接口, 子接口的声明优先, 默认方法优先于抽象方法
+        val inherited = LinkedHashMap<String, ObserverProxyGenerator.MethodInfo>()
+        val queue = ArrayDeque(interfaces)
+        while (queue.isNotEmpty()) {
+            val itf = get(queue.removeFirst()) ?: return null
+            itf.methods.forEach {
+                val key = it.name + it.desc
+                val exist = inherited[key]
+                if (key !in declared && (exist == null || exist.isAbstract && !it.isAbstract)) {
+                    inherited[key] = it
+                }
+            }
+            itf.interfaces.filter { interfaces.add(it) }.forEach { queue.addLast(it) }
+        }
+        return (declared.values + inherited.values).filter { it.isAbstract }
+    }
+
+    private fun readBytes(name: String): ByteArray? {
+        val path = "$name.class"
+        dirs.forEach { dir ->
+            val file = File(dir, path)
+            if (file.isFile) {
+                return file.readBytes()
+            }
+        }
+        jars.forEach { jar ->
+            jar.getEntry(path)?.let { entry -> return jar.getInputStream(entry).use { it.readBytes() } }
+        }
+        return javaClass.classLoader?.getResourceAsStream(path)?.use { it.readBytes() }
+    }
+
+    override fun close() {
+        jars.forEach {
+            try {
+                it.close()
+            } catch (e: Exception) {
+                e.printStackTrace()
+            }
+        }
+        cache.clear()
+    }
+
+    companion object {
+        /**
+         * 解析 class 文件
+         */
+        fun read(bytes: ByteArray): ClassInfo {
+            val cr = ClassReader(bytes)
+            val visitor = InfoVisitor(cr.className)
+            cr.accept(visitor, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+            return ClassInfo(
+                cr.className,
+                cr.access,
+                cr.superName,
+                cr.interfaces,
+                visitor.methods,
+                visitor.annotated,
+                visitor.hasDefaultConstructor
+            )
+        }
+    }
+
+    // 记录类是否标注了 GenerateProxy 注解, 是否有可访问的无参构造方法, 以及类中的实例方法
+    private class InfoVisitor(private val owner: String) : ClassVisitor(Opcodes.ASM7) {
+        var annotated = false
+        var hasDefaultConstructor = false
+        val methods = mutableListOf<ObserverProxyGenerator.MethodInfo>()
+
+        override fun visitAnnotation(descriptor: String, visible: Boolean): AnnotationVisitor? {
+            if (descriptor == ObserverProxyGenerator.ANNOTATION_DESC) {
+                annotated = true
+            }
+            return null
+        }
+
+        override fun visitMethod(
+            access: Int,
+            name: String,
+            descriptor: String,
+            signature: String?,
+            exceptions: Array<out String>?
+        ): MethodVisitor? {
+            if (name == "<init>") {
+                if (descriptor == "()V" && access and Opcodes.ACC_PRIVATE == 0) {
+                    hasDefaultConstructor = true
+                }
+            } else if (name != "<clinit>" && access and (Opcodes.ACC_STATIC or Opcodes.ACC_PRIVATE) == 0) {
+                methods.add(ObserverProxyGenerator.MethodInfo(owner, access, name, descriptor, exceptions))
+            }
+            return null
+        }
+    }
+}
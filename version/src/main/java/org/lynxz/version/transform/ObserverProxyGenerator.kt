@@ -0,0 +1,337 @@
+package org.lynxz.version.transform
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Label
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.Type
+
+/**
+ * 为标注了 GenerateProxy 的接口或抽象类生成实现类字节码, 行为与 java.lang.reflect.Proxy 生成的动态代理类一致:
+ * 1. 构造方法: (InvocationHandler), 抽象方法均转发给 handler, 接口的 equals/hashCode/toString 也转发给 handler
+ * 2. 额外实现 IGeneratedProxy.invokeDirect, 可直接(非反射)调用其他实现类对象的抽象方法
+ * 抽象类需要有非private的无参构造方法
+ *
+ * @param targetName 接口或抽象类完整名称, 如: org/lynxz/demo/IDemoObserver
+ * @param isInterface true-接口 false-抽象类
+ * @param methods 需实现的抽象方法, 包括从父类及接口继承的, 参考 [ClassHierarchy.collectAbstractMethods]
+ */
+class ObserverProxyGenerator(
+    private val targetName: String,
+    private val isInterface: Boolean,
+    private val methods: List<MethodInfo>
+) {
+    /**
+     * 方法信息
+     * @param owner 声明该方法的类或接口完整名称
+     * @param access 方法权限修饰符
+     * @param name 方法名
+     * @param desc 方法签名, 如: (ILjava/lang/String;)V
+     * @param exceptions 声明抛出的异常类型
+     */
+    data class MethodInfo(
+        val owner: String,
+        val access: Int,
+        val name: String,
+        val desc: String,
+        val exceptions: Array<out String>?
+    ) {
+        val isAbstract: Boolean
+            get() = access and Opcodes.ACC_ABSTRACT != 0
+    }
+
+    // 生成类完整名称
+    val proxyName = "$targetName$GENERATED_PROXY_SUFFIX"
+
+    // 父类, 接口的实现类父类为 Object
+    private val superName = if (isInterface) OBJECT else targetName
+
+    // 需转发给 handler 的方法: 抽象方法 + 接口的 equals/hashCode/toString(接口中重新声明时不重复添加)
+    // 抽象类保留父类的 equals/hashCode/toString 实现
+    private val allMethods = if (!isInterface) methods else methods + OBJECT_METHODS.filter { om ->
+        methods.none { it.name == om.name && it.desc == om.desc }
+    }
+
+    fun generate(): ByteArray {
+        val cw = ClassWriter(ClassWriter.COMPUTE_MAXS)
+        cw.visit(
+            Opcodes.V1_6,
+            Opcodes.ACC_PUBLIC or Opcodes.ACC_FINAL or Opcodes.ACC_SUPER or Opcodes.ACC_SYNTHETIC,
+            proxyName,
+            null,
+            superName,
+            if (isInterface) arrayOf(targetName, GENERATED_PROXY) else arrayOf(GENERATED_PROXY)
+        )
+        cw.visitField(Opcodes.ACC_PRIVATE or Opcodes.ACC_FINAL, FIELD_HANDLER, HANDLER_DESC, null, null).visitEnd()
+        allMethods.indices.forEach {
+            cw.visitField(
+                Opcodes.ACC_PRIVATE or Opcodes.ACC_STATIC or Opcodes.ACC_FINAL,
+                methodField(it), METHOD_DESC, null, null
+            ).visitEnd()
+        }
+
+        generateStaticInit(cw)
+        generateConstructor(cw)
+        allMethods.forEachIndexed { index, info -> generateProxyMethod(cw, index, info) }
+        generateInvokeDirect(cw)
+        cw.visitEnd()
+        return cw.toByteArray()
+    }
+
+    // 静态代码块: 初始化各方法对应的 Method 对象, 抽象类的方法可能为 protected, 因此在声明该方法的类中使用 getDeclaredMethod 查找
+    private fun generateStaticInit(cw: ClassWriter) {
+        val mv = cw.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null)
+        mv.visitCode()
+        allMethods.forEachIndexed { index, info ->
+            mv.visitLdcInsn(Type.getObjectType(info.owner))
+            mv.visitLdcInsn(info.name)
+            val argTypes = Type.getArgumentTypes(info.desc)
+            pushInt(mv, argTypes.size)
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Class")
+            argTypes.forEachIndexed { i, type ->
+                mv.visitInsn(Opcodes.DUP)
+                pushInt(mv, i)
+                pushClass(mv, type)
+                mv.visitInsn(Opcodes.AASTORE)
+            }
+            mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getDeclaredMethod",
+                "(Ljava/lang/String;[Ljava/lang/Class;)$METHOD_DESC", false
+            )
+            mv.visitFieldInsn(Opcodes.PUTSTATIC, proxyName, methodField(index), METHOD_DESC)
+        }
+        mv.visitInsn(Opcodes.RETURN)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+    }
+
+    private fun generateConstructor(cw: ClassWriter) {
+        val mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "($HANDLER_DESC)V", null, null)
+        mv.visitCode()
+        mv.visitVarInsn(Opcodes.ALOAD, 0)
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false)
+        mv.visitVarInsn(Opcodes.ALOAD, 0)
+        mv.visitVarInsn(Opcodes.ALOAD, 1)
+        mv.visitFieldInsn(Opcodes.PUTFIELD, proxyName, FIELD_HANDLER, HANDLER_DESC)
+        mv.visitInsn(Opcodes.RETURN)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+    }
+
+    /**
+     * 接口方法实现: 实参装箱后转发给 handler.invoke(this, method, args), 再对返回值拆箱
+     * 异常处理与动态代理一致: RuntimeException/Error/方法声明的异常直接抛出, 其他异常包装为 UndeclaredThrowableException
+     */
+    private fun generateProxyMethod(cw: ClassWriter, index: Int, info: MethodInfo) {
+        // 保留 public/protected 修饰符, 包内可见的方法保持包内可见
+        val access = (info.access and (Opcodes.ACC_PUBLIC or Opcodes.ACC_PROTECTED)) or Opcodes.ACC_FINAL
+        val mv = cw.visitMethod(access, info.name, info.desc, null, info.exceptions)
+        mv.visitCode()
+        val start = Label()
+        val end = Label()
+        val rethrow = Label()
+        val wrap = Label()
+        listOf("java/lang/RuntimeException", "java/lang/Error", *(info.exceptions ?: emptyArray()))
+            .forEach { mv.visitTryCatchBlock(start, end, rethrow, it) }
+        mv.visitTryCatchBlock(start, end, wrap, THROWABLE)
+
+        mv.visitLabel(start)
+        mv.visitVarInsn(Opcodes.ALOAD, 0)
+        mv.visitFieldInsn(Opcodes.GETFIELD, proxyName, FIELD_HANDLER, HANDLER_DESC)
+        mv.visitVarInsn(Opcodes.ALOAD, 0)
+        mv.visitFieldInsn(Opcodes.GETSTATIC, proxyName, methodField(index), METHOD_DESC)
+        val argTypes = Type.getArgumentTypes(info.desc)
+        if (argTypes.isEmpty()) {
+            mv.visitInsn(Opcodes.ACONST_NULL)
+        } else {
+            pushInt(mv, argTypes.size)
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT)
+            var slot = 1
+            argTypes.forEachIndexed { i, type ->
+                mv.visitInsn(Opcodes.DUP)
+                pushInt(mv, i)
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot)
+                box(mv, type)
+                mv.visitInsn(Opcodes.AASTORE)
+                slot += type.size
+            }
+        }
+        mv.visitMethodInsn(
+            Opcodes.INVOKEINTERFACE, HANDLER, "invoke",
+            "(Ljava/lang/Object;${METHOD_DESC}[Ljava/lang/Object;)Ljava/lang/Object;", true
+        )
+        val returnType = Type.getReturnType(info.desc)
+        if (returnType.sort == Type.VOID) {
+            mv.visitInsn(Opcodes.POP)
+        } else {
+            unboxOrCast(mv, returnType)
+        }
+        mv.visitLabel(end)
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN))
+
+        mv.visitLabel(rethrow)
+        mv.visitInsn(Opcodes.ATHROW)
+
+        mv.visitLabel(wrap)
+        mv.visitVarInsn(Opcodes.ASTORE, 1)
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/reflect/UndeclaredThrowableException")
+        mv.visitInsn(Opcodes.DUP)
+        mv.visitVarInsn(Opcodes.ALOAD, 1)
+        mv.visitMethodInsn(
+            Opcodes.INVOKESPECIAL, "java/lang/reflect/UndeclaredThrowableException",
+            "<init>", "(L$THROWABLE;)V", false
+        )
+        mv.visitInsn(Opcodes.ATHROW)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+    }
+
+    /**
+     * invokeDirect(target, method, args): 按 method 匹配抽象方法后直接调用 target, 未匹配时退化为 method.invoke
+     * 直接调用时抛出的异常包装为 InvocationTargetException, 与 Method.invoke 一致
+     */
+    private fun generateInvokeDirect(cw: ClassWriter) {
+        val mv = cw.visitMethod(
+            Opcodes.ACC_PUBLIC or Opcodes.ACC_FINAL,
+            "invokeDirect",
+            "(Ljava/lang/Object;${METHOD_DESC}[Ljava/lang/Object;)Ljava/lang/Object;",
+            null,
+            arrayOf("java/lang/reflect/InvocationTargetException", "java/lang/IllegalAccessException")
+        )
+        mv.visitCode()
+        val start = Label()
+        val end = Label()
+        val wrap = Label()
+        mv.visitTryCatchBlock(start, end, wrap, THROWABLE)
+
+        mv.visitLabel(start)
+        methods.forEachIndexed { index, info ->
+            val next = Label()
+            mv.visitVarInsn(Opcodes.ALOAD, 2)
+            mv.visitFieldInsn(Opcodes.GETSTATIC, proxyName, methodField(index), METHOD_DESC)
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD, "equals", "(Ljava/lang/Object;)Z", false)
+            mv.visitJumpInsn(Opcodes.IFEQ, next)
+
+            mv.visitVarInsn(Opcodes.ALOAD, 1)
+            mv.visitTypeInsn(Opcodes.CHECKCAST, targetName)
+            Type.getArgumentTypes(info.desc).forEachIndexed { i, type ->
+                mv.visitVarInsn(Opcodes.ALOAD, 3)
+                pushInt(mv, i)
+                mv.visitInsn(Opcodes.AALOAD)
+                unboxOrCast(mv, type)
+            }
+            if (isInterface) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, targetName, info.name, info.desc, true)
+            } else {
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, targetName, info.name, info.desc, false)
+            }
+            val returnType = Type.getReturnType(info.desc)
+            if (returnType.sort == Type.VOID) {
+                mv.visitInsn(Opcodes.ACONST_NULL)
+            } else {
+                box(mv, returnType)
+            }
+            mv.visitInsn(Opcodes.ARETURN)
+            mv.visitLabel(next)
+        }
+        mv.visitLabel(end)
+
+        // 非本接口方法, 反射调用
+        mv.visitVarInsn(Opcodes.ALOAD, 2)
+        mv.visitVarInsn(Opcodes.ALOAD, 1)
+        mv.visitVarInsn(Opcodes.ALOAD, 3)
+        mv.visitMethodInsn(
+            Opcodes.INVOKEVIRTUAL, METHOD, "invoke",
+            "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", false
+        )
+        mv.visitInsn(Opcodes.ARETURN)
+
+        mv.visitLabel(wrap)
+        mv.visitVarInsn(Opcodes.ASTORE, 4)
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/reflect/InvocationTargetException")
+        mv.visitInsn(Opcodes.DUP)
+        mv.visitVarInsn(Opcodes.ALOAD, 4)
+        mv.visitMethodInsn(
+            Opcodes.INVOKESPECIAL, "java/lang/reflect/InvocationTargetException",
+            "<init>", "(L$THROWABLE;)V", false
+        )
+        mv.visitInsn(Opcodes.ATHROW)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+    }
+
+    private fun methodField(index: Int) = "m$index"
+
+    private fun pushInt(mv: MethodVisitor, value: Int) {
+        when {
+            value <= 5 -> mv.visitInsn(Opcodes.ICONST_0 + value)
+            value <= Byte.MAX_VALUE -> mv.visitIntInsn(Opcodes.BIPUSH, value)
+            else -> mv.visitIntInsn(Opcodes.SIPUSH, value)
+        }
+    }
+
+    // 加载参数类型对应的 Class 对象, 基本类型使用包装类的 TYPE 字段
+    private fun pushClass(mv: MethodVisitor, type: Type) {
+        val wrapper = wrapperOf(type)
+        if (wrapper == null) {
+            mv.visitLdcInsn(type)
+        } else {
+            mv.visitFieldInsn(Opcodes.GETSTATIC, wrapper, "TYPE", "Ljava/lang/Class;")
+        }
+    }
+
+    private fun box(mv: MethodVisitor, type: Type) {
+        val wrapper = wrapperOf(type) ?: return
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf", "(${type.descriptor})L$wrapper;", false)
+    }
+
+    // 基本类型拆箱(null会抛出NullPointerException, 与动态代理一致), 引用类型强转
+    private fun unboxOrCast(mv: MethodVisitor, type: Type) {
+        val wrapper = wrapperOf(type)
+        if (wrapper == null) {
+            if (type.internalName != OBJECT) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, type.internalName)
+            }
+        } else {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper)
+            mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL, wrapper, "${type.className}Value", "()${type.descriptor}", false
+            )
+        }
+    }
+
+    private fun wrapperOf(type: Type) = when (type.sort) {
+        Type.BOOLEAN -> "java/lang/Boolean"
+        Type.CHAR -> "java/lang/Character"
+        Type.BYTE -> "java/lang/Byte"
+        Type.SHORT -> "java/lang/Short"
+        Type.INT -> "java/lang/Integer"
+        Type.FLOAT -> "java/lang/Float"
+        Type.LONG -> "java/lang/Long"
+        Type.DOUBLE -> "java/lang/Double"
+        else -> null
+    }
+
+    companion object {
+        // 需与 utils 库中 ProxyUtil.GENERATED_PROXY_SUFFIX 保持一致
+        const val GENERATED_PROXY_SUFFIX = "_RecookProxy"
+
+        // 标记需生成实现类的注解
+        const val ANNOTATION_DESC = "Lorg/lynxz/utils/reflect/GenerateProxy;"
+        private const val GENERATED_PROXY = "org/lynxz/utils/reflect/IGeneratedProxy"
+
+        private const val OBJECT = "java/lang/Object"
+        private const val THROWABLE = "java/lang/Throwable"
+        private const val METHOD = "java/lang/reflect/Method"
+        private const val METHOD_DESC = "L$METHOD;"
+        private const val HANDLER = "java/lang/reflect/InvocationHandler"
+        private const val HANDLER_DESC = "L$HANDLER;"
+        private const val FIELD_HANDLER = "h"
+
+        private val OBJECT_METHODS = listOf(
+            MethodInfo(OBJECT, Opcodes.ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null),
+            MethodInfo(OBJECT, Opcodes.ACC_PUBLIC, "hashCode", "()I", null),
+            MethodInfo(OBJECT, Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;", null)
+        )
+    }
+}
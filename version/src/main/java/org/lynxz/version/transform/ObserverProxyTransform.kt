@@ -0,0 +1,83 @@
+package org.lynxz.version.transform
+
+import com.android.build.api.transform.TransformInvocation
+import org.lynxz.version.util.FileUtilSimple
+import org.objectweb.asm.Opcodes
+import java.io.File
+import java.io.FileOutputStream
+
+/**
+ * 为标注了 GenerateProxy 注解的 observer 接口或抽象类生成实现类, 以替代运行时的动态代理(抽象类无法使用动态代理)
+ * 生成的类与接口位于同一目录, 类名为: 接口名 + [ObserverProxyGenerator.GENERATED_PROXY_SUFFIX]
+ * 生成类会实现从父类及父接口继承的抽象方法, 父类及接口可位于 transform 的任意输入或 bootClasspath 中
+ * 限制:
+ * 1. 仅处理源码目录中的类, jar包中的接口不生成, 运行时仍使用动态代理
+ * 2. 抽象类需有非private的无参构造方法, 且不能继承其他包中包内可见的抽象方法
+ * 3. 非final的普通类不生成子类, 由 ProxyUtil 通过构造方法创建实例
+ * 4. 父类或接口的 class 文件无法找到时不生成
+ *
+ * @param bootClasspath 获取 bootClasspath(如 android.jar), 用于查找继承自 android sdk 的父类及接口
+ */
+class ObserverProxyTransform(private val bootClasspath: () -> List<File> = { emptyList() }) : BaseTransform() {
+
+    private var hierarchy: ClassHierarchy? = null
+
+    override fun transform(transformInvocation: TransformInvocation) {
+        val classpath = mutableListOf<File>()
+        transformInvocation.inputs.forEach { input ->
+            input.directoryInputs.forEach { classpath.add(it.file) }
+            input.jarInputs.forEach { classpath.add(it.file) }
+        }
+        try {
+            classpath.addAll(bootClasspath())
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+        val tHierarchy = ClassHierarchy(classpath)
+        hierarchy = tHierarchy
+        try {
+            super.transform(transformInvocation)
+        } finally {
+            hierarchy = null
+            tHierarchy.close()
+        }
+    }
+
+    override fun modifyClassCode(inputFile: File, outputFile: File) {
+        FileUtilSimple.copyFile(inputFile, outputFile)
+        try {
+            val info = ClassHierarchy.read(inputFile.readBytes())
+            val isAbstractClass = !info.isInterface && info.access and Opcodes.ACC_ABSTRACT != 0
+            if (!info.annotated
+                || info.access and Opcodes.ACC_ANNOTATION != 0
+                || !info.isInterface && !(isAbstractClass && info.hasDefaultConstructor)
+            ) {
+                return
+            }
+
+            val methods = (hierarchy ?: ClassHierarchy(emptyList())).collectAbstractMethods(info)
+            if (methods == null) {
+                printLog("ObserverProxyTransform skip ${info.name}, super class or interface not found")
+                return
+            }
+            val pkg = info.name.substringBeforeLast('/', "")
+            if (methods.any {
+                    it.access and (Opcodes.ACC_PUBLIC or Opcodes.ACC_PROTECTED) == 0
+                            && it.owner.substringBeforeLast('/', "") != pkg
+                }) {
+                printLog("ObserverProxyTransform skip ${info.name}, package-private abstract method in other package")
+                return
+            }
+
+            val generator = ObserverProxyGenerator(info.name, info.isInterface, methods)
+            val proxyFile = File(
+                outputFile.parentFile,
+                "${generator.proxyName.substringAfterLast('/')}.class"
+            )
+            printLog("ObserverProxyTransform generate ${generator.proxyName}, methodSize=${methods.size}")
+            FileOutputStream(proxyFile).use { it.write(generator.generate()) }
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+}